@@ -41,6 +41,12 @@ dependencies {
 
 	implementation("org.apache.httpcomponents.client5:httpclient5")
 
+	// Streaming tarball reads for large PRs
+	implementation("org.apache.commons:commons-compress:1.27.1")
+
+	// Optional local repository mirrors
+	implementation("org.eclipse.jgit:org.eclipse.jgit:6.10.0.202406032230-r")
+
 	compileOnly("org.projectlombok:lombok")
 	annotationProcessor("org.projectlombok:lombok")
 
@@ -56,4 +62,32 @@ dependencyManagement {
 
 tasks.withType<Test> {
 	useJUnitPlatform()
+}
+
+// Micro-benchmarks live in src/benchmark, outside the unit test suite: ./gradlew benchmark
+val benchmark: SourceSet by sourceSets.creating {
+	compileClasspath += sourceSets.main.get().output
+	runtimeClasspath += sourceSets.main.get().output
+}
+
+configurations[benchmark.implementationConfigurationName].extendsFrom(configurations.implementation.get())
+configurations[benchmark.runtimeOnlyConfigurationName].extendsFrom(configurations.runtimeOnly.get())
+
+val benchmarkRuns = listOf(
+	"WebhookEventParserBenchmark",
+	"WebhookSignatureVerifierBenchmark",
+	"DiffPatchParserBenchmark",
+).map { name ->
+	tasks.register<JavaExec>("benchmark" + name.removeSuffix("Benchmark")) {
+		description = "Runs $name from src/benchmark."
+		group = "verification"
+		classpath = benchmark.runtimeClasspath
+		mainClass = "com.codereview.aicodereviewer.service.$name"
+	}
+}
+
+tasks.register("benchmark") {
+	description = "Runs the micro-benchmarks in src/benchmark."
+	group = "verification"
+	dependsOn(benchmarkRuns)
 }
\ No newline at end of file
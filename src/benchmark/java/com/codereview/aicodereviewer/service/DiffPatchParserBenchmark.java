@@ -0,0 +1,152 @@
+package com.codereview.aicodereviewer.service;
+
+import com.codereview.aicodereviewer.model.DiffHunk;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the single-pass patch parser against the split/regex parsing GitHubService
+ * used before, on a large generated patch
+ *
+ * The old path only collected added lines; the new one also fills the removed lines and
+ * the old-to-new map. Run with ./gradlew benchmark; allocation figures need a HotSpot JVM.
+ */
+public class DiffPatchParserBenchmark {
+
+    private static final int ITERATIONS = 2_000;
+    private static final int HUNKS = 500;
+
+    public static void main(String[] args) {
+        String patch = largePatch(new Random(18));
+
+        // Both paths must agree on the added lines before their speed means anything
+        List<Integer> expected = splitAndRegex(patch);
+        List<Integer> actual = new ArrayList<>();
+        for (DiffHunk hunk : DiffPatchParser.parse(patch)) {
+            for (int line : hunk.getAddedLines()) {
+                actual.add(line);
+            }
+        }
+        if (!expected.equals(actual)) {
+            throw new IllegalStateException("parsers disagree on the added lines");
+        }
+
+        // Warm up both paths
+        for (int i = 0; i < ITERATIONS; i++) {
+            DiffPatchParser.parse(patch);
+            splitAndRegex(patch);
+        }
+
+        long parserStart = System.nanoTime();
+        long parserBytes = allocatedBytes();
+        for (int i = 0; i < ITERATIONS; i++) {
+            DiffPatchParser.parse(patch);
+        }
+        parserBytes = allocatedBytes() - parserBytes;
+        long parserNanos = System.nanoTime() - parserStart;
+
+        long splitStart = System.nanoTime();
+        long splitBytes = allocatedBytes();
+        for (int i = 0; i < ITERATIONS; i++) {
+            splitAndRegex(patch);
+        }
+        splitBytes = allocatedBytes() - splitBytes;
+        long splitNanos = System.nanoTime() - splitStart;
+
+        System.out.printf("Patch %d chars, %d hunks: single pass %d B/op %d ns/op, split/regex %d B/op %d ns/op%n",
+                patch.length(), HUNKS,
+                parserBytes / ITERATIONS, parserNanos / ITERATIONS,
+                splitBytes / ITERATIONS, splitNanos / ITERATIONS);
+    }
+
+    /**
+     * The parsing GitHubService did before DiffPatchParser: one String per line, regex splits per header
+     */
+    private static List<Integer> splitAndRegex(String patch) {
+        List<Integer> changedLines = new ArrayList<>();
+
+        String[] lines = patch.split("\n");
+        int currentLine = 0;
+
+        for (String line : lines) {
+            if (line.startsWith("@@")) {
+                String[] parts = line.split("\\+");
+                if (parts.length > 1) {
+                    String lineInfo = parts[1].split(",")[0].split(" ")[0];
+                    try {
+                        currentLine = Integer.parseInt(lineInfo);
+                    } catch (NumberFormatException e) {
+                        // Malformed header, keep counting from the previous hunk
+                    }
+                }
+                continue;
+            }
+
+            if (currentLine == 0) {
+                continue;
+            }
+
+            if (line.startsWith("+")) {
+                changedLines.add(currentLine);
+                currentLine++;
+            } else if (!line.startsWith("-")) {
+                currentLine++;
+            }
+        }
+
+        return changedLines;
+    }
+
+    /**
+     * Patch of a heavily edited source file, with function context on every hunk header
+     */
+    private static String largePatch(Random random) {
+        StringBuilder patch = new StringBuilder();
+        int oldLine = 1;
+        int newLine = 1;
+
+        for (int h = 0; h < HUNKS; h++) {
+            StringBuilder body = new StringBuilder();
+            int oldStart = oldLine;
+            int newStart = newLine;
+
+            for (int i = 0; i < 3; i++, oldLine++, newLine++) {
+                body.append("         int value").append(i).append(" = compute(input, ").append(i).append(");\n");
+            }
+            int edits = 5 + random.nextInt(30);
+            for (int i = 0; i < edits; i++) {
+                if (random.nextBoolean()) {
+                    body.append("+        result.add(transform(value, \"added ").append(i).append("\"));\n");
+                    newLine++;
+                } else {
+                    body.append("-        result.remove(legacy(value, \"removed ").append(i).append("\"));\n");
+                    oldLine++;
+                }
+            }
+            for (int i = 0; i < 3; i++, oldLine++, newLine++) {
+                body.append("     }\n");
+            }
+
+            patch.append("@@ -").append(oldStart).append(',').append(oldLine - oldStart)
+                    .append(" +").append(newStart).append(',').append(newLine - newStart)
+                    .append(" @@ public List<String> process").append(h).append("(Input input) {\n")
+                    .append(body);
+
+            int gap = 10 + random.nextInt(40);
+            oldLine += gap;
+            newLine += gap;
+        }
+
+        return patch.toString();
+    }
+
+    private static long allocatedBytes() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads) {
+            return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,69 @@
+package com.codereview.aicodereviewer.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+/**
+ * Compares the streaming webhook extractor against materializing the payload as a Map,
+ * which is what the controller did before
+ *
+ * Run with ./gradlew benchmark; allocation figures need a HotSpot JVM.
+ */
+public class WebhookEventParserBenchmark {
+
+    private static final int ITERATIONS = 20_000;
+
+    public static void main(String[] args) throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        WebhookEventParser parser = new WebhookEventParser(objectMapper);
+        byte[] body = fixture("pull_request_synchronize.json");
+
+        // Warm up both paths
+        for (int i = 0; i < ITERATIONS; i++) {
+            parser.parsePullRequestEvent(body);
+            objectMapper.readValue(body, new TypeReference<Map<String, Object>>() {});
+        }
+
+        long streamingStart = System.nanoTime();
+        long streamingBytes = allocatedBytes();
+        for (int i = 0; i < ITERATIONS; i++) {
+            parser.parsePullRequestEvent(body);
+        }
+        streamingBytes = allocatedBytes() - streamingBytes;
+        long streamingNanos = System.nanoTime() - streamingStart;
+
+        long mapStart = System.nanoTime();
+        long mapBytes = allocatedBytes();
+        for (int i = 0; i < ITERATIONS; i++) {
+            objectMapper.readValue(body, new TypeReference<Map<String, Object>>() {});
+        }
+        mapBytes = allocatedBytes() - mapBytes;
+        long mapNanos = System.nanoTime() - mapStart;
+
+        System.out.printf("Payload %d bytes: streaming %d B/op %d ns/op, map %d B/op %d ns/op%n",
+                body.length,
+                streamingBytes / ITERATIONS, streamingNanos / ITERATIONS,
+                mapBytes / ITERATIONS, mapNanos / ITERATIONS);
+    }
+
+    private static long allocatedBytes() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads) {
+            return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+
+    private static byte[] fixture(String name) throws IOException {
+        try (InputStream in = WebhookEventParserBenchmark.class.getResourceAsStream("/webhooks/" + name)) {
+            if (in == null) {
+                throw new IOException("missing fixture " + name);
+            }
+            return in.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.codereview.aicodereviewer.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Measures webhook signature verification on a real payload: a valid signature, a forged
+ * one of the right length, and a malformed header, next to the Map deserialization every
+ * request paid for before verification moved in front of parsing
+ *
+ * Run with ./gradlew benchmark; allocation figures need a HotSpot JVM.
+ */
+public class WebhookSignatureVerifierBenchmark {
+
+    private static final int ITERATIONS = 20_000;
+    private static final String SECRET = "benchmark-secret";
+
+    public static void main(String[] args) throws IOException, GeneralSecurityException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        WebhookSignatureVerifier verifier = new WebhookSignatureVerifier(SECRET, true);
+        byte[] body = fixture("pull_request_synchronize.json");
+
+        String valid = sign(body);
+        // Same length as a real signature, so the HMAC is computed before the mismatch is found
+        String forged = valid.substring(0, valid.length() - 1) + (valid.endsWith("0") ? "1" : "0");
+        String malformed = "sha1=" + valid.substring("sha256=".length());
+
+        measure("valid", body, b -> check(verifier.isValid(b, valid), true));
+        measure("forged", body, b -> check(verifier.isValid(b, forged), false));
+        measure("malformed", body, b -> check(verifier.isValid(b, malformed), false));
+        measure("map parse", body, b -> {
+            try {
+                objectMapper.readValue(b, new TypeReference<Map<String, Object>>() {});
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    private static void measure(String name, byte[] body, Consumer<byte[]> operation) {
+        for (int i = 0; i < ITERATIONS; i++) {
+            operation.accept(body);
+        }
+
+        long start = System.nanoTime();
+        long bytes = allocatedBytes();
+        for (int i = 0; i < ITERATIONS; i++) {
+            operation.accept(body);
+        }
+        bytes = allocatedBytes() - bytes;
+        long nanos = System.nanoTime() - start;
+
+        System.out.printf("Payload %d bytes, %s: %d B/op %d ns/op%n",
+                body.length, name, bytes / ITERATIONS, nanos / ITERATIONS);
+    }
+
+    private static void check(boolean actual, boolean expected) {
+        if (actual != expected) {
+            throw new IllegalStateException("expected verification to return " + expected);
+        }
+    }
+
+    private static String sign(byte[] body) throws GeneralSecurityException {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        return "sha256=" + HexFormat.of().formatHex(mac.doFinal(body));
+    }
+
+    private static long allocatedBytes() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads) {
+            return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+
+    private static byte[] fixture(String name) throws IOException {
+        try (InputStream in = WebhookSignatureVerifierBenchmark.class.getResourceAsStream("/webhooks/" + name)) {
+            if (in == null) {
+                throw new IOException("missing fixture " + name);
+            }
+            return in.readAllBytes();
+        }
+    }
+}
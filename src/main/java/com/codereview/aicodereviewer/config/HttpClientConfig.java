@@ -0,0 +1,110 @@
+package com.codereview.aicodereviewer.config;
+
+import com.codereview.aicodereviewer.service.GitHubConditionalCache;
+import com.codereview.aicodereviewer.service.GitHubRateLimitGovernor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.ssl.DefaultHostnameVerifier;
+import org.apache.hc.client5.http.ssl.SSLConnectionSocketFactoryBuilder;
+import org.apache.hc.core5.ssl.SSLContexts;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.List;
+
+/**
+ * One pooled Apache HttpClient 5 shared by every outbound call (GitHub and the ML model)
+ *
+ * Keep-alive connections are pooled with a total and a per-host limit, and every request is
+ * bounded by connect, read (socket) and response timeouts, so a hung peer cannot pin a review
+ * thread. Spring's RestTemplate only drives the classic (blocking) client, which speaks
+ * HTTP/1.1; HTTP/2 would need the async client and is not used here.
+ */
+@Configuration
+@Slf4j
+public class HttpClientConfig {
+
+    @Bean(destroyMethod = "close")
+    public PoolingHttpClientConnectionManager httpConnectionManager(
+            @Value("${http.client.max-connections:100}") int maxConnections,
+            @Value("${http.client.max-connections-per-host:20}") int maxConnectionsPerHost,
+            @Value("${http.client.connect-timeout-ms:5000}") long connectTimeoutMillis,
+            @Value("${http.client.read-timeout-ms:30000}") long readTimeoutMillis,
+            @Value("${http.client.tls-versions:TLSv1.2}") String[] tlsVersions) {
+
+        return PoolingHttpClientConnectionManagerBuilder.create()
+                .setSSLSocketFactory(SSLConnectionSocketFactoryBuilder.create()
+                        .setSslContext(SSLContexts.createDefault())
+                        .setTlsVersions(tlsVersions)
+                        .setHostnameVerifier(new DefaultHostnameVerifier())
+                        .build())
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxConnectionsPerHost)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMillis))
+                        .setSocketTimeout(Timeout.ofMilliseconds(readTimeoutMillis))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                        .build())
+                .build();
+    }
+
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient httpClient(
+            PoolingHttpClientConnectionManager httpConnectionManager,
+            @Value("${http.client.response-timeout-ms:60000}") long responseTimeoutMillis,
+            @Value("${http.client.pool-timeout-ms:10000}") long poolTimeoutMillis,
+            @Value("${http.client.keep-alive-ms:30000}") long keepAliveMillis) {
+
+        log.info("🌐 Shared HTTP client: pooled, response timeout {} ms", responseTimeoutMillis);
+
+        return HttpClients.custom()
+                .setConnectionManager(httpConnectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.ofMilliseconds(poolTimeoutMillis))
+                        .setResponseTimeout(Timeout.ofMilliseconds(responseTimeoutMillis))
+                        .build())
+                .setKeepAliveStrategy((response, context) -> TimeValue.ofMilliseconds(keepAliveMillis))
+                .evictIdleConnections(TimeValue.ofMilliseconds(keepAliveMillis))
+                .evictExpiredConnections()
+                .disableAutomaticRetries() // Rate-limit retries are handled by GitHubRateLimitGovernor
+                .build();
+    }
+
+    @Bean
+    public HttpClientMetrics httpClientMetrics(PoolingHttpClientConnectionManager httpConnectionManager) {
+        return new HttpClientMetrics(httpConnectionManager);
+    }
+
+    /**
+     * RestTemplate for the GitHub API: conditional cache, then rate-limit governor, then metrics
+     */
+    @Bean
+    public RestTemplate gitHubRestTemplate(CloseableHttpClient httpClient,
+                                           GitHubConditionalCache conditionalCache,
+                                           GitHubRateLimitGovernor rateLimitGovernor,
+                                           HttpClientMetrics httpClientMetrics) {
+        RestTemplate restTemplate = new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
+        restTemplate.setInterceptors(List.of(conditionalCache, rateLimitGovernor, httpClientMetrics));
+        return restTemplate;
+    }
+
+    /**
+     * RestTemplate for the ML model API
+     */
+    @Bean
+    public RestTemplate mlRestTemplate(CloseableHttpClient httpClient, HttpClientMetrics httpClientMetrics) {
+        RestTemplate restTemplate = new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
+        restTemplate.setInterceptors(List.of(httpClientMetrics));
+        return restTemplate;
+    }
+}
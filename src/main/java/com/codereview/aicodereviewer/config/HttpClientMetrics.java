@@ -0,0 +1,99 @@
+package com.codereview.aicodereviewer.config;
+
+import lombok.RequiredArgsConstructor;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.core5.pool.PoolStats;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * Latency per host and connection pool saturation of the shared HTTP client
+ * Installed as the innermost RestTemplate interceptor, so latency is wire time only
+ */
+@RequiredArgsConstructor
+public class HttpClientMetrics implements ClientHttpRequestInterceptor {
+
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final Map<String, HostLatency> hosts = new ConcurrentHashMap<>();
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body,
+                                        ClientHttpRequestExecution execution) throws IOException {
+        HostLatency latency = hosts.computeIfAbsent(String.valueOf(request.getURI().getHost()), host -> new HostLatency());
+        long start = System.nanoTime();
+        try {
+            ClientHttpResponse response = execution.execute(request, body);
+            latency.record(System.nanoTime() - start, false);
+            return response;
+        } catch (IOException | RuntimeException e) {
+            latency.record(System.nanoTime() - start, true);
+            throw e;
+        }
+    }
+
+    /**
+     * Pool usage (total and per route) and request latency per host
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("pool", poolStats(connectionManager.getTotalStats()));
+
+        Map<String, Object> routes = new TreeMap<>();
+        for (HttpRoute route : connectionManager.getRoutes()) {
+            routes.put(route.getTargetHost().toURI(), poolStats(connectionManager.getStats(route)));
+        }
+        stats.put("routes", routes);
+
+        Map<String, Object> latency = new TreeMap<>();
+        hosts.forEach((host, hostLatency) -> latency.put(host, hostLatency.getStats()));
+        stats.put("latency", latency);
+        return stats;
+    }
+
+    private static Map<String, Object> poolStats(PoolStats pool) {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("leased", pool.getLeased());
+        stats.put("available", pool.getAvailable());
+        stats.put("pending", pool.getPending());   // requests waiting for a connection
+        stats.put("max", pool.getMax());
+        return stats;
+    }
+
+    private static class HostLatency {
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong errors = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        void record(long nanos, boolean failed) {
+            requests.incrementAndGet();
+            if (failed) {
+                errors.incrementAndGet();
+            }
+            totalNanos.addAndGet(nanos);
+            maxNanos.accumulate(nanos);
+        }
+
+        Map<String, Object> getStats() {
+            long count = requests.get();
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("requests", count);
+            stats.put("errors", errors.get());
+            stats.put("avgMillis", count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalNanos.get() / count));
+            stats.put("maxMillis", TimeUnit.NANOSECONDS.toMillis(maxNanos.get()));
+            return stats;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.codereview.aicodereviewer.controller;
+
+import com.codereview.aicodereviewer.config.HttpClientMetrics;
+import com.codereview.aicodereviewer.service.BlobStore;
+import com.codereview.aicodereviewer.service.GitHubAppAuthService;
+import com.codereview.aicodereviewer.service.GitHubCommentService;
+import com.codereview.aicodereviewer.service.GitHubConditionalCache;
+import com.codereview.aicodereviewer.service.GitHubRateLimitGovernor;
+import com.codereview.aicodereviewer.service.PublishQueue;
+import com.codereview.aicodereviewer.service.RepositoryMirrorService;
+import com.codereview.aicodereviewer.service.ReviewCoalescer;
+import com.codereview.aicodereviewer.service.ReviewScheduler;
+import com.codereview.aicodereviewer.service.WebhookDeduplicator;
+import com.codereview.aicodereviewer.service.WebhookJournal;
+import com.codereview.aicodereviewer.service.WebhookSignatureVerifier;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Exposes runtime metrics of the review pipeline
+ */
+@RestController
+@RequestMapping("/metrics")
+@RequiredArgsConstructor
+public class MetricsController {
+
+    private final ReviewScheduler reviewScheduler;
+    private final ReviewCoalescer reviewCoalescer;
+    private final WebhookJournal webhookJournal;
+    private final WebhookDeduplicator webhookDeduplicator;
+    private final WebhookSignatureVerifier signatureVerifier;
+    private final GitHubAppAuthService appAuthService;
+    private final GitHubRateLimitGovernor rateLimitGovernor;
+    private final GitHubConditionalCache conditionalCache;
+    private final GitHubCommentService commentService;
+    private final PublishQueue publishQueue;
+    private final BlobStore blobStore;
+    private final RepositoryMirrorService repositoryMirror;
+    private final HttpClientMetrics httpClientMetrics;
+
+    /**
+     * Snapshot of all pipeline metrics
+     */
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> metrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("scheduler", reviewScheduler.getStats());
+        metrics.put("coalescer", reviewCoalescer.getStats());
+        metrics.put("journal", webhookJournal.getStats());
+        metrics.put("signatures", signatureVerifier.getStats());
+        metrics.put("dedup", webhookDeduplicator.getStats());
+        metrics.put("githubAppTokens", appAuthService.getStats());
+        metrics.put("githubRateLimit", rateLimitGovernor.getStats());
+        metrics.put("githubCache", conditionalCache.getStats());
+        metrics.put("reviews", commentService.getStats());
+        metrics.put("publishQueue", publishQueue.getStats());
+        metrics.put("blobStore", blobStore.getStats());
+        metrics.put("mirrors", repositoryMirror.getStats());
+        metrics.put("httpClient", httpClientMetrics.getStats());
+        return ResponseEntity.ok(metrics);
+    }
+}
@@ -1,12 +1,21 @@
 package com.codereview.aicodereviewer.controller;
 
+import com.codereview.aicodereviewer.model.PullRequestEvent;
 import com.codereview.aicodereviewer.service.GitHubService;
+import com.codereview.aicodereviewer.service.ReviewCoalescer;
 import com.codereview.aicodereviewer.service.ReviewOrchestrator;
+import com.codereview.aicodereviewer.service.WebhookDeduplicator;
+import com.codereview.aicodereviewer.service.WebhookEventParser;
+import com.codereview.aicodereviewer.service.WebhookJournal;
+import com.codereview.aicodereviewer.service.WebhookSignatureVerifier;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 
@@ -22,6 +31,11 @@ public class WebhookController {
 
     private final ReviewOrchestrator reviewOrchestrator;
     private final GitHubService gitHubService;
+    private final ReviewCoalescer reviewCoalescer;
+    private final WebhookJournal webhookJournal;
+    private final WebhookDeduplicator webhookDeduplicator;
+    private final WebhookSignatureVerifier signatureVerifier;
+    private final WebhookEventParser webhookEventParser;
 
     /**
      * Receives GitHub webhook events (pull request opened/synchronized)
@@ -30,55 +44,132 @@ public class WebhookController {
     public ResponseEntity<Map<String, String>> handleGitHubWebhook(
             @RequestHeader("X-GitHub-Event") String eventType,
             @RequestHeader(value = "X-Hub-Signature-256", required = false) String signature,
-            @RequestBody Map<String, Object> payload) {
+            @RequestHeader(value = "X-GitHub-Delivery", required = false) String deliveryId,
+            @RequestBody byte[] body) {
+
+        // Reject forged or corrupted requests before touching the JSON
+        if (!signatureVerifier.isValid(body, signature)) {
+            log.warn("⚠️ Rejected webhook with invalid signature (delivery {})", deliveryId);
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of(
+                    "status", "rejected",
+                    "reason", "invalid_signature"
+            ));
+        }
 
-        log.info("Received GitHub event: {}", eventType);
+        log.info("Received GitHub event: {} (delivery {})", eventType, deliveryId);
+
+        // Drop redeliveries before doing any work
+        if (webhookDeduplicator.isDuplicateDelivery(deliveryId)) {
+            return ResponseEntity.ok(Map.of(
+                    "status", "duplicate",
+                    "delivery", deliveryId
+            ));
+        }
 
         if ("pull_request".equals(eventType)) {
-            String action = (String) payload.get("action");
-            log.info("Pull request action: {}", action);
-
-            // Process "opened" and "synchronize" (new commits)
-            if ("opened".equals(action) || "synchronize".equals(action)) {
-                Map<String, Object> pullRequest = (Map<String, Object>) payload.get("pull_request");
-                Map<String, Object> repo = (Map<String, Object>) payload.get("repository");
-
-                // IMPORTANT: Extract installation ID for GitHub App
-                Map<String, Object> installation = (Map<String, Object>) payload.get("installation");
-                Long installationId = null;
-                if (installation != null) {
-                    installationId = ((Number) installation.get("id")).longValue();
-                    log.info("Installation ID: {}", installationId);
-                }
-
-                // Extract PR details
-                int prNumber = (int) pullRequest.get("number");
-                String fullName = (String) repo.get("full_name");
-                String[] parts = fullName.split("/");
-                String owner = parts[0];
-                String repoName = parts[1];
-
-                Map<String, Object> head = (Map<String, Object>) pullRequest.get("head");
-                String headSha = (String) head.get("sha");
-
-                log.info("Triggering review for PR #{} in {}/{}", prNumber, owner, repoName);
-
-                // Trigger async review with installation ID
-                final Long finalInstallationId = installationId;
-                new Thread(() -> {
-                    reviewOrchestrator.processPullRequest(owner, repoName, prNumber, headSha, finalInstallationId);
-                }).start();
+            // Stream out only the fields we need instead of building the whole payload
+            PullRequestEvent event;
+            try {
+                event = webhookEventParser.parsePullRequestEvent(body);
+            } catch (IOException e) {
+                log.warn("Could not parse webhook payload: {}", e.getMessage());
+                webhookDeduplicator.forget(deliveryId, null);
+                return ResponseEntity.badRequest().body(Map.of(
+                        "status", "rejected",
+                        "reason", "invalid_payload"
+                ));
+            }
+
+            event.setDeliveryId(deliveryId);
+            try {
+                return handlePullRequestEvent(event);
+            } catch (RuntimeException e) {
+                // Not accepted: let GitHub's redelivery through
+                webhookDeduplicator.forget(deliveryId, event);
+                throw e;
+            }
+        }
+
+        return ResponseEntity.ok(Map.of(
+                "status", "ignored",
+                "event", eventType
+        ));
+    }
+
+    /**
+     * Cancel or queue the review for a parsed pull request event
+     */
+    private ResponseEntity<Map<String, String>> handlePullRequestEvent(PullRequestEvent event) {
+        String deliveryId = event.getDeliveryId();
+        String action = event.getAction();
+        log.info("Pull request action: {}", action);
+
+        // Process "opened" and "synchronize" (new commits), "closed" cancels pending reviews
+        boolean reviewAction = "opened".equals(action) || "synchronize".equals(action);
+        if (reviewAction || "closed".equals(action)) {
+            int prNumber = event.getPrNumber();
+            String owner = event.getOwner();
+            String repoName = event.getRepo();
+
+            if (event.getInstallationId() != null) {
+                log.info("Installation ID: {}", event.getInstallationId());
+            }
 
+            if (!reviewAction) {
+                reviewCoalescer.forget(event);
                 return ResponseEntity.ok(Map.of(
-                        "status", "review_started",
+                        "status", "review_cancelled",
+                        "pr", String.valueOf(prNumber)
+                ));
+            }
+
+            if (webhookDeduplicator.isDuplicateHeadSha(event)) {
+                return ResponseEntity.ok(Map.of(
+                        "status", "already_reviewing",
+                        "pr", String.valueOf(prNumber)
+                ));
+            }
+
+            log.info("Triggering review for PR #{} in {}/{}", prNumber, owner, repoName);
+
+            // Journal before acking so the review survives a restart; if that fails,
+            // answer 5xx so GitHub redelivers instead of losing the event
+            try {
+                webhookJournal.append(event);
+            } catch (IOException e) {
+                log.error("❌ Could not journal event for {}: {}", event.prKey(), e.getMessage());
+                webhookDeduplicator.forget(deliveryId, event);
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of(
+                        "status", "rejected",
+                        "reason", "journal_unavailable",
                         "pr", String.valueOf(prNumber)
                 ));
             }
+
+            // Queue the review; fast-reject when the scheduler is saturated
+            ReviewCoalescer.Outcome outcome = reviewCoalescer.offer(event);
+            if (outcome == ReviewCoalescer.Outcome.REJECTED) {
+                // Not acknowledged, so not ours to replay; let a redelivery through once there is room again
+                webhookJournal.markCompleted(event);
+                webhookDeduplicator.forget(deliveryId, event);
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .header(HttpHeaders.RETRY_AFTER, "60")
+                        .body(Map.of(
+                                "status", "rejected",
+                                "reason", "review_queue_full",
+                                "pr", String.valueOf(prNumber)
+                        ));
+            }
+
+            return ResponseEntity.ok(Map.of(
+                    "status", outcome == ReviewCoalescer.Outcome.DUPLICATE ? "already_reviewing" : "review_started",
+                    "pr", String.valueOf(prNumber)
+            ));
         }
 
         return ResponseEntity.ok(Map.of(
                 "status", "ignored",
-                "event", eventType
+                "event", "pull_request"
         ));
     }
 
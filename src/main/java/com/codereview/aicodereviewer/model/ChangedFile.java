@@ -0,0 +1,74 @@
+package com.codereview.aicodereviewer.model;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A file changed in a pull request, as listed by GET /pulls/{n}/files
+ */
+@Value
+@Builder
+public class ChangedFile {
+    String filename;
+    String previousFilename;  // set for renamed files
+    String status;            // added, modified, removed, renamed...
+    String blobSha;
+    int additions;
+    int deletions;
+    @Builder.Default
+    List<DiffHunk> hunks = List.of();  // empty when GitHub omits the patch (binary or too large)
+
+    /**
+     * Line numbers added or modified in the new version of the file
+     */
+    public List<Integer> getChangedLines() {
+        List<Integer> changedLines = new ArrayList<>();
+        for (DiffHunk hunk : hunks) {
+            for (int line : hunk.getAddedLines()) {
+                changedLines.add(line);
+            }
+        }
+        return changedLines;
+    }
+
+    /**
+     * Changed lines as an interval index, for membership and nearest-line lookups
+     */
+    public ChangedLineIndex getChangedLineIndex() {
+        return ChangedLineIndex.of(hunks);
+    }
+
+    /**
+     * New-file line of an old-file line (LEFT side to RIGHT side)
+     * Lines between hunks are shifted by the net line count of the hunks before them
+     *
+     * @return The new line number, or -1 if the line was removed
+     */
+    public int mapOldToNew(int oldLine) {
+        int shift = 0;
+        for (DiffHunk hunk : hunks) {
+            if (hunk.getOldLines() == 0) {
+                // Pure insertion after old line oldStart
+                if (oldLine <= hunk.getOldStart()) {
+                    break;
+                }
+            } else {
+                if (oldLine < hunk.getOldStart()) {
+                    break;
+                }
+                if (oldLine < hunk.getOldStart() + hunk.getOldLines()) {
+                    return hunk.mapOldToNew(oldLine);
+                }
+            }
+            shift += hunk.getNewLines() - hunk.getOldLines();
+        }
+        return oldLine + shift;
+    }
+
+    public boolean isJava() {
+        return filename != null && filename.endsWith(".java");
+    }
+}
@@ -0,0 +1,129 @@
+package com.codereview.aicodereviewer.model;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Changed (RIGHT side) lines of one file as a sorted set of disjoint line intervals
+ *
+ * Membership and nearest-line queries are binary searches over two int arrays,
+ * so large generated diffs cost one interval per run of added lines instead of one
+ * boxed Integer per line.
+ */
+public final class ChangedLineIndex {
+
+    private static final ChangedLineIndex EMPTY = new ChangedLineIndex(new int[0], new int[0], 0);
+
+    private final int[] starts;  // first line of each interval, ascending
+    private final int[] ends;    // last line of each interval, inclusive
+    private final int size;
+
+    private ChangedLineIndex(int[] starts, int[] ends, int size) {
+        this.starts = starts;
+        this.ends = ends;
+        this.size = size;
+    }
+
+    /**
+     * Index the added lines of a file's hunks
+     */
+    public static ChangedLineIndex of(List<DiffHunk> hunks) {
+        int lines = 0;
+        for (DiffHunk hunk : hunks) {
+            lines += hunk.getAddedLines().length;
+        }
+        if (lines == 0) {
+            return EMPTY;
+        }
+
+        int[] all = new int[lines];
+        int position = 0;
+        for (DiffHunk hunk : hunks) {
+            int[] added = hunk.getAddedLines();
+            System.arraycopy(added, 0, all, position, added.length);
+            position += added.length;
+        }
+        return of(all);
+    }
+
+    /**
+     * Index arbitrary line numbers; duplicates and order do not matter
+     */
+    public static ChangedLineIndex of(int[] lines) {
+        if (lines.length == 0) {
+            return EMPTY;
+        }
+
+        int[] sorted = lines.clone();
+        Arrays.sort(sorted);
+
+        int[] starts = new int[sorted.length];
+        int[] ends = new int[sorted.length];
+        int intervals = 0;
+        int size = 0;
+        for (int line : sorted) {
+            if (intervals > 0 && line <= ends[intervals - 1] + 1) {
+                if (line > ends[intervals - 1]) {
+                    ends[intervals - 1] = line;
+                    size++;
+                }
+            } else {
+                starts[intervals] = line;
+                ends[intervals] = line;
+                intervals++;
+                size++;
+            }
+        }
+
+        return new ChangedLineIndex(Arrays.copyOf(starts, intervals), Arrays.copyOf(ends, intervals), size);
+    }
+
+    public boolean contains(int line) {
+        int interval = floorInterval(line);
+        return interval >= 0 && line <= ends[interval];
+    }
+
+    /**
+     * Closest changed line at most maxDistance lines away, preferring the line itself,
+     * then the earlier line on a tie
+     *
+     * @return The changed line, or -1 if there is none in range
+     */
+    public int nearest(int line, int maxDistance) {
+        int interval = floorInterval(line);
+        if (interval >= 0 && line <= ends[interval]) {
+            return line;
+        }
+
+        int best = -1;
+        int bestDistance = Integer.MAX_VALUE;
+        if (interval >= 0) {
+            best = ends[interval];
+            bestDistance = line - best;
+        }
+        if (interval + 1 < starts.length && starts[interval + 1] - line < bestDistance) {
+            best = starts[interval + 1];
+            bestDistance = best - line;
+        }
+        return bestDistance <= maxDistance ? best : -1;
+    }
+
+    /**
+     * Number of changed lines
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Index of the last interval starting at or before the line, or -1
+     */
+    private int floorInterval(int line) {
+        int index = Arrays.binarySearch(starts, line);
+        return index >= 0 ? index : -index - 2;
+    }
+}
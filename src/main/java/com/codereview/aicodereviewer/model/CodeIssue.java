@@ -50,6 +50,11 @@ public class CodeIssue {
      */
     private String codeSnippet;
 
+    /**
+     * Stable identity across re-reviews, set by IssueFingerprinter (optional)
+     */
+    private String fingerprint;
+
     /**
      * Helper method to format as markdown comment
      */
@@ -77,6 +82,11 @@ public class CodeIssue {
             comment.append("```\n");
         }
 
+        // Hidden marker that lets later reviews recognize this comment
+        if (fingerprint != null) {
+            comment.append("\n<!-- ai-code-reviewer:fingerprint=").append(fingerprint).append(" -->\n");
+        }
+
         return comment.toString();
     }
 }
\ No newline at end of file
@@ -0,0 +1,28 @@
+package com.codereview.aicodereviewer.model;
+
+import lombok.Value;
+
+/**
+ * One hunk of a unified diff ("@@ -oldStart,oldLines +newStart,newLines @@")
+ * Line numbers are 1-based and kept in primitive arrays
+ */
+@Value
+public class DiffHunk {
+    int oldStart;
+    int oldLines;
+    int newStart;
+    int newLines;
+    int[] addedLines;    // new-file line numbers of "+" lines, ascending
+    int[] removedLines;  // old-file line numbers of "-" lines, ascending
+    int[] oldToNew;      // new line of each old line from oldStart on, -1 if removed; short if the patch was cut
+
+    /**
+     * New-file line of an old-file line inside this hunk
+     *
+     * @return The new line number, or -1 if the line was removed or is outside the hunk
+     */
+    public int mapOldToNew(int oldLine) {
+        int index = oldLine - oldStart;
+        return index >= 0 && index < oldToNew.length ? oldToNew[index] : -1;
+    }
+}
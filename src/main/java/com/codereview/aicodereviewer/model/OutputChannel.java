@@ -0,0 +1,18 @@
+package com.codereview.aicodereviewer.model;
+
+/**
+ * Where review findings of a repository are published
+ */
+public enum OutputChannel {
+    COMMENTS,  // inline review comments plus a summary comment
+    CHECKS,    // a check run with annotations
+    BOTH;
+
+    public boolean usesComments() {
+        return this != CHECKS;
+    }
+
+    public boolean usesChecks() {
+        return this != COMMENTS;
+    }
+}
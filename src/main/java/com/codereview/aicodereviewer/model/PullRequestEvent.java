@@ -0,0 +1,74 @@
+package com.codereview.aicodereviewer.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A pull request webhook event accepted for review
+ * Holds only the fields the review pipeline needs
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PullRequestEvent {
+
+    /**
+     * Pull request action (e.g. "opened", "synchronize")
+     */
+    private String action;
+
+    /**
+     * Repository owner
+     */
+    private String owner;
+
+    /**
+     * Repository name
+     */
+    private String repo;
+
+    /**
+     * Pull request number
+     */
+    private int prNumber;
+
+    /**
+     * Commit SHA of the PR head
+     */
+    private String headSha;
+
+    /**
+     * GitHub App installation ID (null for PAT mode)
+     */
+    private Long installationId;
+
+    /**
+     * Size hints from the payload, used to estimate review cost
+     */
+    private int changedFiles;
+    private int additions;
+    private int deletions;
+
+    /**
+     * Sequence number in the webhook journal (null if not journaled)
+     */
+    @JsonIgnore
+    private Long journalSeq;
+
+    /**
+     * X-GitHub-Delivery of the webhook that carried the event (null if replayed)
+     */
+    @JsonIgnore
+    private String deliveryId;
+
+    /**
+     * Key identifying the pull request, e.g. "owner/repo#42"
+     */
+    public String prKey() {
+        return owner + "/" + repo + "#" + prNumber;
+    }
+}
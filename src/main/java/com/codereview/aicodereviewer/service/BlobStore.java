@@ -0,0 +1,241 @@
+package com.codereview.aicodereviewer.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * On-disk store of git blob contents, keyed by blob SHA
+ *
+ * Blobs are immutable, so an entry never needs revalidation. Files live under
+ * dir/ab/cdef... and are read through a memory mapping. The store is bounded by
+ * total size and evicts least recently used blobs.
+ */
+@Service
+@Slf4j
+public class BlobStore {
+
+    private static final Pattern BLOB_SHA = Pattern.compile("[0-9a-f]{40}");
+
+    private final boolean enabled;
+    private final Path directory;
+    private final long maxBytes;
+
+    // Blob SHA -> size, access-ordered so iteration starts at the least recently used blob
+    private final LinkedHashMap<String, Long> index = new LinkedHashMap<>(256, 0.75f, true);
+    private long storedBytes;
+
+    // Metrics
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public BlobStore(@Value("${review.blob-store.enabled:true}") boolean enabled,
+                     @Value("${review.blob-store.dir:data/blobs}") String directory,
+                     @Value("${review.blob-store.max-bytes:268435456}") long maxBytes) {
+        this.enabled = enabled;
+        this.directory = Paths.get(directory);
+        this.maxBytes = maxBytes;
+
+        if (!enabled) {
+            log.info("Blob store disabled");
+            return;
+        }
+
+        try {
+            Files.createDirectories(this.directory);
+            loadIndex();
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot open blob store in " + this.directory, e);
+        }
+
+        log.info("📦 Blob store ready: {} blobs, {} bytes in {}", index.size(), storedBytes, this.directory);
+    }
+
+    /**
+     * Read a blob as UTF-8 text
+     *
+     * @return The content, or null if the blob is not stored
+     */
+    public String get(String blobSha) {
+        if (!enabled || !isBlobSha(blobSha)) {
+            return null;
+        }
+
+        synchronized (this) {
+            if (index.get(blobSha) == null) {
+                misses.incrementAndGet();
+                return null;
+            }
+        }
+
+        try (FileChannel channel = FileChannel.open(pathOf(blobSha), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            hits.incrementAndGet();
+            return StandardCharsets.UTF_8.decode(buffer).toString();
+        } catch (IOException e) {
+            // Evicted by another thread in the meantime, or removed from disk
+            log.warn("Could not read blob {}: {}", blobSha, e.getMessage());
+            forget(blobSha);
+            misses.incrementAndGet();
+            return null;
+        }
+    }
+
+    /**
+     * Store a blob, after checking that the content really hashes to the SHA
+     */
+    public void put(String blobSha, byte[] content) {
+        if (!enabled || !isBlobSha(blobSha) || content.length > maxBytes) {
+            return;
+        }
+
+        if (!blobSha.equals(gitBlobSha(content))) {
+            rejected.incrementAndGet();
+            log.warn("⚠️ Blob content does not match SHA {}, not storing it", blobSha);
+            return;
+        }
+
+        synchronized (this) {
+            if (index.containsKey(blobSha)) {
+                return;
+            }
+        }
+
+        Path path = pathOf(blobSha);
+        try {
+            Files.createDirectories(path.getParent());
+            Path temp = Files.createTempFile(path.getParent(), blobSha, ".tmp");
+            Files.write(temp, content);
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            log.warn("Could not store blob {}: {}", blobSha, e.getMessage());
+            return;
+        }
+
+        synchronized (this) {
+            if (index.put(blobSha, (long) content.length) == null) {
+                storedBytes += content.length;
+            }
+            evict();
+        }
+    }
+
+    /**
+     * Blob store size and hit metrics
+     */
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("blobs", index.size());
+        stats.put("bytes", storedBytes);
+        stats.put("maxBytes", maxBytes);
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("evictions", evictions.get());
+        stats.put("rejected", rejected.get());
+        return stats;
+    }
+
+    /**
+     * Delete least recently used blobs until the store fits its budget
+     */
+    private void evict() {
+        Iterator<Map.Entry<String, Long>> eldest = index.entrySet().iterator();
+        while (storedBytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<String, Long> entry = eldest.next();
+            eldest.remove();
+            storedBytes -= entry.getValue();
+            evictions.incrementAndGet();
+            try {
+                Files.deleteIfExists(pathOf(entry.getKey()));
+            } catch (IOException e) {
+                log.warn("Could not delete blob {}: {}", entry.getKey(), e.getMessage());
+            }
+        }
+    }
+
+    private synchronized void forget(String blobSha) {
+        Long size = index.remove(blobSha);
+        if (size != null) {
+            storedBytes -= size;
+        }
+    }
+
+    /**
+     * Rebuild the index from disk, oldest files first
+     */
+    private void loadIndex() throws IOException {
+        List<Path> blobs;
+        try (Stream<Path> files = Files.walk(directory, 2)) {
+            blobs = files.filter(Files::isRegularFile)
+                    .filter(path -> directory.relativize(path).getNameCount() == 2)
+                    .toList();
+        }
+
+        List<Path> ordered = new ArrayList<>();
+        for (Path path : blobs) {
+            String sha = path.getParent().getFileName().toString() + path.getFileName();
+            if (isBlobSha(sha)) {
+                ordered.add(path);
+            } else {
+                // Leftover temp file from an interrupted write
+                Files.deleteIfExists(path);
+            }
+        }
+        ordered.sort(Comparator.comparing(BlobStore::lastModified));
+
+        for (Path path : ordered) {
+            long size = Files.size(path);
+            index.put(path.getParent().getFileName().toString() + path.getFileName(), size);
+            storedBytes += size;
+        }
+        evict();
+    }
+
+    private Path pathOf(String blobSha) {
+        return directory.resolve(blobSha.substring(0, 2)).resolve(blobSha.substring(2));
+    }
+
+    private static boolean isBlobSha(String sha) {
+        return sha != null && BLOB_SHA.matcher(sha).matches();
+    }
+
+    private static long lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Git object id of a blob: sha1("blob <length>\0" + content)
+     */
+    static String gitBlobSha(byte[] content) {
+        try {
+            MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+            sha1.update(("blob " + content.length + "\0").getBytes(StandardCharsets.US_ASCII));
+            return HexFormat.of().formatHex(sha1.digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 not available", e);
+        }
+    }
+}
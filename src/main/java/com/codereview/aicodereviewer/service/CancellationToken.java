@@ -0,0 +1,49 @@
+package com.codereview.aicodereviewer.service;
+
+/**
+ * Cooperative cancellation flag for a running review
+ * The review checks it between steps and stops once it is cancelled
+ */
+public class CancellationToken {
+
+    /**
+     * Token that is never cancelled
+     */
+    public static final CancellationToken NONE = new CancellationToken() {
+        @Override
+        public void cancel(String reason) {
+            // never cancelled
+        }
+    };
+
+    private volatile String reason;
+
+    /**
+     * Request cancellation; the first reason wins
+     */
+    public void cancel(String reason) {
+        if (this.reason == null) {
+            this.reason = reason;
+        }
+    }
+
+    public boolean isCancelled() {
+        return reason != null;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    /**
+     * Stop the current review if cancellation was requested
+     *
+     * @throws ReviewCancelledException if the token is cancelled
+     */
+    public void throwIfCancelled() {
+        String currentReason = reason;
+        if (currentReason != null) {
+            throw new ReviewCancelledException(currentReason);
+        }
+    }
+}
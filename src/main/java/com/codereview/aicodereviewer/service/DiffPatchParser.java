@@ -0,0 +1,211 @@
+package com.codereview.aicodereviewer.service;
+
+import com.codereview.aicodereviewer.model.DiffHunk;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Single-pass parser for the unified diff patches GitHub returns per file
+ *
+ * Walks the patch once over a CharSequence, without splitting it into line strings or
+ * using regular expressions, and builds DiffHunk structures with primitive arrays:
+ * added (RIGHT) lines, removed (LEFT) lines and the old-to-new line map.
+ * Malformed hunk headers are skipped together with their body.
+ */
+public final class DiffPatchParser {
+
+    private DiffPatchParser() {
+    }
+
+    /**
+     * Parse a patch into its hunks, in order
+     */
+    public static List<DiffHunk> parse(CharSequence patch) {
+        List<DiffHunk> hunks = new ArrayList<>();
+        if (patch == null) {
+            return hunks;
+        }
+
+        HunkBuilder hunk = null;
+        int length = patch.length();
+        int position = 0;
+
+        while (position < length) {
+            int lineEnd = lineEnd(patch, position, length);
+
+            if (startsWith(patch, position, lineEnd, "@@")) {
+                if (hunk != null) {
+                    hunks.add(hunk.build());
+                }
+                hunk = HunkBuilder.parseHeader(patch, position + 2, lineEnd);
+            } else if (hunk != null && !hunk.isComplete()) {
+                char marker = position < lineEnd ? patch.charAt(position) : ' ';
+                switch (marker) {
+                    case '+' -> hunk.added();
+                    case '-' -> hunk.removed();
+                    case '\\' -> { }  // "\ No newline at end of file"
+                    default -> hunk.context();
+                }
+            }
+
+            position = lineEnd + 1;
+        }
+
+        if (hunk != null) {
+            hunks.add(hunk.build());
+        }
+        return hunks;
+    }
+
+    /**
+     * Index of the newline ending the line at position, or length for the last line
+     * Strings use indexOf, which the JIT vectorizes; this is most of the parsing time
+     */
+    private static int lineEnd(CharSequence text, int position, int length) {
+        if (text instanceof String string) {
+            int newline = string.indexOf('\n', position);
+            return newline < 0 ? length : newline;
+        }
+        int end = position;
+        while (end < length && text.charAt(end) != '\n') {
+            end++;
+        }
+        return end;
+    }
+
+        private static boolean startsWith(CharSequence text, int start, int end, String prefix) {
+        if (end - start < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (text.charAt(start + i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * Accumulates one hunk's lines into growable int arrays
+     */
+    private static final class HunkBuilder {
+
+        private final int oldStart;
+        private final int oldLines;
+        private final int newStart;
+        private final int newLines;
+
+        private int oldLine;
+        private int newLine;
+
+        private int[] added = new int[8];
+        private int addedCount;
+        private int[] removed = new int[8];
+        private int removedCount;
+        private int[] oldToNew = new int[8];
+        private int oldCount;
+
+        private HunkBuilder(int oldStart, int oldLines, int newStart, int newLines) {
+            this.oldStart = oldStart;
+            this.oldLines = oldLines;
+            this.newStart = newStart;
+            this.newLines = newLines;
+            this.oldLine = oldStart;
+            this.newLine = newStart;
+        }
+
+        /**
+         * Parse " -oldStart[,oldLines] +newStart[,newLines] @@..." starting after the leading "@@"
+         *
+         * @return The builder, or null if the header is malformed
+         */
+        static HunkBuilder parseHeader(CharSequence text, int position, int end) {
+            int[] numbers = new int[4];
+            int index = 0;
+
+            for (char sign : new char[]{'-', '+'}) {
+                while (position < end && text.charAt(position) == ' ') {
+                    position++;
+                }
+                if (position >= end || text.charAt(position) != sign) {
+                    return null;
+                }
+                position++;
+
+                int start = position;
+                int value = 0;
+                while (position < end && isDigit(text.charAt(position)) && value < 100_000_000) {
+                    value = value * 10 + (text.charAt(position++) - '0');
+                }
+                if (position == start) {
+                    return null;
+                }
+                numbers[index++] = value;
+
+                // Count defaults to 1 when omitted ("@@ -3 +3 @@")
+                int count = 1;
+                if (position < end && text.charAt(position) == ',') {
+                    position++;
+                    start = position;
+                    count = 0;
+                    while (position < end && isDigit(text.charAt(position)) && count < 100_000_000) {
+                        count = count * 10 + (text.charAt(position++) - '0');
+                    }
+                    if (position == start) {
+                        return null;
+                    }
+                }
+                numbers[index++] = count;
+            }
+
+            return new HunkBuilder(numbers[0], numbers[1], numbers[2], numbers[3]);
+        }
+
+        boolean isComplete() {
+            return oldLine >= oldStart + oldLines && newLine >= newStart + newLines;
+        }
+
+        void added() {
+            if (addedCount == added.length) {
+                added = Arrays.copyOf(added, addedCount * 2);
+            }
+            added[addedCount++] = newLine++;
+        }
+
+        void removed() {
+            if (removedCount == removed.length) {
+                removed = Arrays.copyOf(removed, removedCount * 2);
+            }
+            removed[removedCount++] = oldLine++;
+            mapOld(-1);
+        }
+
+        void context() {
+            mapOld(newLine);
+            oldLine++;
+            newLine++;
+        }
+
+        private void mapOld(int mapped) {
+            if (oldCount == oldToNew.length) {
+                oldToNew = Arrays.copyOf(oldToNew, oldCount * 2);
+            }
+            oldToNew[oldCount++] = mapped;
+        }
+
+        /**
+         * Arrays are sized by the lines actually seen, never by the header counts,
+         * so old lines a truncated patch never showed simply stay unmapped
+         */
+        DiffHunk build() {
+            return new DiffHunk(oldStart, oldLines, newStart, newLines, Arrays.copyOf(added, addedCount),
+                    Arrays.copyOf(removed, removedCount), Arrays.copyOf(oldToNew, oldCount));
+        }
+    }
+}
@@ -2,13 +2,17 @@ package com.codereview.aicodereviewer.service;
 
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.bouncycastle.asn1.pkcs.PrivateKeyInfo;
 import org.bouncycastle.openssl.PEMKeyPair;
 import org.bouncycastle.openssl.PEMParser;
 import org.bouncycastle.openssl.jcajce.JcaPEMKeyConverter;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
@@ -17,27 +21,29 @@ import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.security.KeyPair;
 import java.security.PrivateKey;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
 
-import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
-import org.apache.hc.client5.http.impl.classic.HttpClients;
-import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
-import org.apache.hc.client5.http.ssl.SSLConnectionSocketFactory;
-import org.apache.hc.client5.http.ssl.SSLConnectionSocketFactoryBuilder;
-import org.apache.hc.core5.http.ssl.TLS;
-import org.apache.hc.core5.ssl.SSLContexts;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
-import org.apache.hc.client5.http.ssl.DefaultHostnameVerifier;
 import java.text.SimpleDateFormat;
 import java.util.TimeZone;
 
 /**
  * Service to authenticate as a GitHub App and generate installation tokens
+ *
+ * The app JWT and each installation's token are cached until shortly before they expire.
+ * A background task renews installation tokens that are still in use ahead of expiry, so
+ * reviews normally get a token without signing a JWT or calling GitHub. When a token does
+ * have to be minted on the request path, concurrent callers for the same installation
+ * share one request (single flight).
  */
 @Service
 @Slf4j
@@ -55,37 +61,77 @@ public class GitHubAppAuthService {
     @Value("${github.app.private-key-path}")
     private String privateKeyPath;
 
+    // Installation tokens expiring within this window are renewed in the background
+    @Value("${github.app.token-refresh-ahead-seconds:600}")
+    private long refreshAheadSeconds;
+
+    // Tokens are dropped from the cache after this long without use, instead of being renewed
+    @Value("${github.app.token-idle-seconds:3600}")
+    private long idleSeconds;
+
+    // A token is never handed out with less validity left than this plus the rate-limit retry budget
+    private static final Duration MIN_VALIDITY = Duration.ofSeconds(60);
+    private static final Duration JWT_LIFETIME = Duration.ofMinutes(10);
+    private static final Duration JWT_REUSE = Duration.ofMinutes(8);
+
     private final RestTemplate restTemplate;
+    private final GitHubRateLimitGovernor rateLimitGovernor;
+    private final Duration minValidity;
 
-    public GitHubAppAuthService() {
-        try {
-            // 1. Create a socket factory with explicit TLS 1.2 and the modern Hostname Verifier
-            final SSLConnectionSocketFactory sslSocketFactory = SSLConnectionSocketFactoryBuilder.create()
-                    .setSslContext(SSLContexts.createDefault())
-                    .setTlsVersions(TLS.V_1_2)
-                    .setHostnameVerifier(new DefaultHostnameVerifier()) // Use 'new DefaultHostnameVerifier()'
-                    .build();
-
-            // 2. Build the client with the forced strategy
-            final CloseableHttpClient httpClient = HttpClients.custom()
-                    .setConnectionManager(PoolingHttpClientConnectionManagerBuilder.create()
-                            .setSSLSocketFactory(sslSocketFactory)
-                            .build())
-                    .disableAutomaticRetries() // Stop handshake retry loops
-                    .build();
-
-            // 3. Connect it to Spring
-            this.restTemplate = new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
-            log.info("✅ RestTemplate engine swapped to Apache HttpClient 5 (TLS 1.2 + SNI Fixed)");
+    private final ConcurrentMap<Long, CachedToken> installationTokens = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, CompletableFuture<CachedToken>> inFlight = new ConcurrentHashMap<>();
+    private ScheduledExecutorService refresher;
 
-        } catch (Exception e) {
-            log.error("❌ Failed to initialize secure RestTemplate: {}", e.getMessage());
-            throw new RuntimeException(e);
-        }
+    private String cachedJwt;
+    private Instant cachedJwtReuseUntil = Instant.MIN;
+
+    // Login of the app's bot user, fetched on first use
+    private volatile String botLogin;
+
+    // Metrics
+    private final AtomicLong tokenHits = new AtomicLong();
+    private final AtomicLong tokenMints = new AtomicLong();
+    private final AtomicLong backgroundRefreshes = new AtomicLong();
+    private final AtomicLong coalescedWaits = new AtomicLong();
+    private final AtomicLong refreshFailures = new AtomicLong();
+    private final AtomicLong jwtMints = new AtomicLong();
+
+    /**
+     * @param restTemplate Shared GitHub client (pooled Apache HttpClient 5, TLS 1.2 + SNI)
+     */
+    public GitHubAppAuthService(@Qualifier("gitHubRestTemplate") RestTemplate restTemplate,
+                                GitHubRateLimitGovernor rateLimitGovernor) {
+        this.restTemplate = restTemplate;
+        this.rateLimitGovernor = rateLimitGovernor;
+        this.minValidity = MIN_VALIDITY.plus(rateLimitGovernor.retryBudget());
     }
 
     private PrivateKey privateKey;
 
+    @PostConstruct
+    void startRefresher() {
+        refresher = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("github-token-refresh-"));
+        refresher.scheduleWithFixedDelay(this::refreshExpiringTokens, 30, 30, TimeUnit.SECONDS);
+        log.info("🔄 Installation token cache: renewing {}s ahead of expiry", refreshAheadSeconds);
+    }
+
+    @PreDestroy
+    void stopRefresher() {
+        refresher.shutdownNow();
+    }
+
+    /**
+     * App JWT, reused for JWT_REUSE of its JWT_LIFETIME so RS256 signing happens a few times an hour at most
+     */
+    public synchronized String getJWT() {
+        if (cachedJwt == null || Instant.now().isAfter(cachedJwtReuseUntil)) {
+            cachedJwt = generateJWT();
+            cachedJwtReuseUntil = Instant.now().plus(JWT_REUSE);
+            jwtMints.incrementAndGet();
+        }
+        return cachedJwt;
+    }
+
     /**
      * Generate a JWT (JSON Web Token) for GitHub App authentication
      */
@@ -96,7 +142,7 @@ public class GitHubAppAuthService {
             }
 
             Date now = new Date();
-            Date expiration = new Date(now.getTime() + 600000); // 10 minutes
+            Date expiration = new Date(now.getTime() + JWT_LIFETIME.toMillis()); // 10 minutes
 
             // ===== EXTENSIVE DEBUG LOGGING =====
             log.info("==================== JWT DEBUG START ====================");
@@ -131,11 +177,119 @@ public class GitHubAppAuthService {
     }
 
     /**
-     * Get an installation access token
+     * Get an installation access token, from the cache when it is still valid
      */
     public String getInstallationToken(long installationId) {
+        CachedToken cached = installationTokens.get(installationId);
+        Instant now = Instant.now();
+
+        if (cached != null && cached.expiresAt.isAfter(now.plus(minValidity))) {
+            tokenHits.incrementAndGet();
+            cached.lastUsed = now;
+            if (cached.expiresAt.isBefore(now.plusSeconds(refreshAheadSeconds))) {
+                // Still usable; renew it off the request path
+                refreshInBackground(installationId);
+            }
+            return cached.token;
+        }
+
+        CachedToken token = refresh(installationId, now);
+        // Also when the token came from a mint this call only waited for
+        token.lastUsed = now;
+        return token.token;
+    }
+
+    /**
+     * Installation token cache metrics
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("cachedInstallations", installationTokens.size());
+        stats.put("tokenHits", tokenHits.get());
+        stats.put("tokenMints", tokenMints.get());
+        stats.put("backgroundRefreshes", backgroundRefreshes.get());
+        stats.put("coalescedWaits", coalescedWaits.get());
+        stats.put("refreshFailures", refreshFailures.get());
+        stats.put("jwtMints", jwtMints.get());
+        return stats;
+    }
+
+    /**
+     * Mint a token for an installation, or wait for the mint already in flight for it
+     *
+     * @param lastUsed When the installation last needed a token; the new token inherits it
+     *                 so a background renewal does not make an idle installation look busy
+     */
+    private CachedToken refresh(long installationId, Instant lastUsed) {
+        CompletableFuture<CachedToken> flight = new CompletableFuture<>();
+        CompletableFuture<CachedToken> existing = inFlight.putIfAbsent(installationId, flight);
+        if (existing != null) {
+            coalescedWaits.incrementAndGet();
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+
         try {
-            String jwt = generateJWT();
+            CachedToken token = mintInstallationToken(installationId);
+            token.lastUsed = lastUsed;
+            installationTokens.put(installationId, token);
+            flight.complete(token);
+            return token;
+        } catch (RuntimeException e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(installationId, flight);
+        }
+    }
+
+    private void refreshInBackground(long installationId) {
+        if (inFlight.containsKey(installationId)) {
+            return;
+        }
+        try {
+            refresher.execute(() -> {
+                CachedToken cached = installationTokens.get(installationId);
+                if (cached == null || cached.expiresAt.isAfter(Instant.now().plusSeconds(refreshAheadSeconds))) {
+                    // Evicted as idle, or renewed by an earlier task queued for the same installation
+                    return;
+                }
+                try {
+                    refresh(installationId, cached.lastUsed);
+                    backgroundRefreshes.incrementAndGet();
+                } catch (Exception e) {
+                    refreshFailures.incrementAndGet();
+                    log.warn("⚠️ Background token refresh for installation {} failed: {}", installationId, e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.debug("Token refresher stopped, not renewing installation {}", installationId);
+        }
+    }
+
+    /**
+     * Periodic pass: renew tokens in use that expire soon, drop tokens nobody used lately
+     */
+    void refreshExpiringTokens() {
+        Instant now = Instant.now();
+        installationTokens.forEach((installationId, cached) -> {
+            if (cached.lastUsed.isBefore(now.minusSeconds(idleSeconds)) || cached.expiresAt.isBefore(now)) {
+                installationTokens.remove(installationId, cached);
+            } else if (cached.expiresAt.isBefore(now.plusSeconds(refreshAheadSeconds))) {
+                refreshInBackground(installationId);
+            }
+        });
+    }
+
+    /**
+     * POST /app/installations/{id}/access_tokens with the app JWT
+     */
+    private CachedToken mintInstallationToken(long installationId) {
+        try {
+            String jwt = getJWT();
 
             String url = String.format(
                     "https://api.github.com/app/installations/%d/access_tokens",
@@ -169,8 +323,14 @@ public class GitHubAppAuthService {
 
             if (response.getBody() != null) {
                 String token = (String) response.getBody().get("token");
-                log.info("✅ Generated installation token for installation: {}", installationId);
-                return token;
+                Object expiresAt = response.getBody().get("expires_at");
+                rateLimitGovernor.bindInstallationToken(token, installationId);
+                tokenMints.incrementAndGet();
+                log.info("✅ Generated installation token for installation: {} (expires {})", installationId, expiresAt);
+                // Installation tokens last an hour; assume so if GitHub leaves out expires_at
+                return new CachedToken(token, expiresAt != null
+                        ? Instant.parse(expiresAt.toString())
+                        : Instant.now().plus(Duration.ofHours(1)));
             }
 
             throw new RuntimeException("Failed to get installation token");
@@ -285,4 +445,48 @@ public class GitHubAppAuthService {
     public String getAppId() {
         return appId;
     }
+
+    /**
+     * Login of the app's bot user ("<slug>[bot]"), the author of everything posted with
+     * installation tokens. GET /app with the app JWT, once.
+     */
+    public String getBotLogin() {
+        String login = botLogin;
+        if (login == null) {
+            HttpHeaders headers = new HttpHeaders();
+            headers.set("Accept", "application/vnd.github+json");
+            headers.set("Authorization", "Bearer " + getJWT());
+            headers.set("X-GitHub-Api-Version", "2022-11-28");
+
+            ResponseEntity<Map> response = restTemplate.exchange(
+                    "https://api.github.com/app",
+                    HttpMethod.GET,
+                    new HttpEntity<>(headers),
+                    Map.class
+            );
+
+            Object slug = response.getBody() != null ? response.getBody().get("slug") : null;
+            if (slug == null) {
+                throw new IllegalStateException("GitHub did not return the app slug");
+            }
+            login = slug + "[bot]";
+            botLogin = login;
+        }
+        return login;
+    }
+
+    /**
+     * A cached installation token; lastUsed decides whether it is worth renewing
+     */
+    private static final class CachedToken {
+
+        private final String token;
+        private final Instant expiresAt;
+        private volatile Instant lastUsed = Instant.now();
+
+        private CachedToken(String token, Instant expiresAt) {
+            this.token = token;
+            this.expiresAt = expiresAt;
+        }
+    }
 }
\ No newline at end of file
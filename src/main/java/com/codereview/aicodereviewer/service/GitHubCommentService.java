@@ -1,14 +1,24 @@
 package com.codereview.aicodereviewer.service;
 
 import com.codereview.aicodereviewer.model.CodeIssue;
+import com.codereview.aicodereviewer.model.OutputChannel;
+import com.fasterxml.jackson.databind.JsonNode;
+import jakarta.annotation.PostConstruct;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
+import java.net.URI;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Service to post review comments on GitHub
@@ -23,21 +33,75 @@ public class GitHubCommentService {
     private String githubToken;
 
     private final GitHubAppAuthService gitHubAppAuthService;
-    private final RestTemplate restTemplate = new RestTemplate();
-    private static final ThreadLocal<String> currentToken = new ThreadLocal<>();
-
-    /**
-     * Set the installation token for the current request
-     */
-    public void setInstallationToken(String token) {
-        currentToken.set(token);
-    }
+    @Qualifier("gitHubRestTemplate")
+    private final RestTemplate restTemplate;
+
+    // Hidden markers in comment bodies (see CodeIssue.toMarkdownComment)
+    private static final Pattern FINGERPRINT_MARKER = Pattern.compile("<!-- ai-code-reviewer:fingerprint=([0-9a-f]+) -->");
+    private static final String SUMMARY_MARKER = "<!-- ai-code-reviewer:summary -->";
+    private static final Pattern NEXT_LINK = Pattern.compile("<([^>]+)>;\\s*rel=\"next\"");
+    private static final int MAX_MINIMIZED_REMEMBERED = 10_000;
+    private static final int ANNOTATIONS_PER_REQUEST = 50;  // GitHub's limit per check run update
+    private static final int MAX_CHECK_SUMMARY_CHARS = 65_535;
+
+    // Node IDs of comments already minimized, so stale comments are not minimized again on every push
+    private final Set<String> minimizedComments = Collections.newSetFromMap(new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > MAX_MINIMIZED_REMEMBERED;
+        }
+    });
+
+    // Inline comments per submitted review; larger sets are split over several reviews
+    @Value("${github.review.max-comments-per-review:50}")
+    private int maxCommentsPerReview;
+
+    // Where findings go: "owner/repo:checks,owner/repo:both" per repository, the default for all others
+    @Value("${review.output.default:comments}")
+    private String defaultOutput;
+
+    @Value("${review.output.repositories:}")
+    private String repositoryOutputs;
+
+    @Value("${github.checks.name:AI Code Review}")
+    private String checkRunName;
+
+    // Login the PAT posts as, fetched on first use
+    private volatile String patLogin;
+
+    private OutputChannel defaultChannel = OutputChannel.COMMENTS;
+    private Map<String, OutputChannel> outputChannels = Map.of();
+
+    // Metrics
+    private final AtomicLong reviewsSubmitted = new AtomicLong();
+    private final AtomicLong commentsInReviews = new AtomicLong();
+    private final AtomicLong fallbackReviews = new AtomicLong();
+    private final AtomicLong fallbackComments = new AtomicLong();
+    private final AtomicLong duplicatesSkipped = new AtomicLong();
+    private final AtomicLong staleMinimized = new AtomicLong();
+    private final AtomicLong summariesEdited = new AtomicLong();
+    private final AtomicLong checkRunsCreated = new AtomicLong();
+    private final AtomicLong annotationsPosted = new AtomicLong();
+    private final AtomicLong annotationRequests = new AtomicLong();
+
+    @PostConstruct
+    void parseOutputChannels() {
+        defaultChannel = OutputChannel.valueOf(defaultOutput.trim().toUpperCase(Locale.ROOT));
+
+        Map<String, OutputChannel> channels = new HashMap<>();
+        if (repositoryOutputs != null && !repositoryOutputs.isBlank()) {
+            for (String pair : repositoryOutputs.split(",")) {
+                String[] parts = pair.trim().split(":");
+                if (parts.length != 2) {
+                    throw new IllegalArgumentException("Invalid repository output channel: " + pair);
+                }
+                channels.put(parts[0].trim().toLowerCase(Locale.ROOT),
+                        OutputChannel.valueOf(parts[1].trim().toUpperCase(Locale.ROOT)));
+            }
+        }
+        outputChannels = channels;
 
-    /**
-     * Clear the installation token after processing
-     */
-    public void clearInstallationToken() {
-        currentToken.remove();
+        log.info("Review output: {} by default, {} repositories configured", defaultChannel, channels.size());
     }
 
     /**
@@ -128,7 +192,7 @@ public class GitHubCommentService {
 
     /**
      * Create HTTP headers with GitHub token
-     * UPDATED: Now uses installation token if available
+     * UPDATED: Now uses the installation token of the current review context if available
      */
     private HttpHeaders createHeaders() {
         HttpHeaders headers = new HttpHeaders();
@@ -136,8 +200,8 @@ public class GitHubCommentService {
         headers.set("Accept", "application/vnd.github+json");
         headers.set("X-GitHub-Api-Version", "2022-11-28");
 
-        // Priority 1: Use installation token if set (GitHub App mode)
-        String installationToken = currentToken.get();
+        // Priority 1: Use the review's installation token (GitHub App mode)
+        String installationToken = ReviewContext.currentInstallationToken();
         if (installationToken != null && !installationToken.isEmpty()) {
             headers.set("Authorization", "Bearer " + installationToken);
         }
@@ -223,19 +287,582 @@ public class GitHubCommentService {
         log.info("Posting {} inline comments for PR #{}", issues.size(), prNumber);
 
         for (CodeIssue issue : issues) {
+            // Pacing is handled by GitHubRateLimitGovernor
             if (postInlineComment(owner, repo, prNumber, commitSha, issue)) {
                 successCount++;
             }
-
-            // Small delay to avoid rate limiting
-            try {
-                Thread.sleep(100);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
         }
 
         log.info("Posted {}/{} inline comments successfully", successCount, issues.size());
         return successCount;
     }
-}
\ No newline at end of file
+
+    /**
+     * Submit inline comments and the summary through POST /pulls/{n}/reviews
+     * Each review carries up to maxCommentsPerReview comments and is created in one call;
+     * the summary becomes the body of the last one. A review GitHub rejects (e.g. a line
+     * outside the diff fails the whole request) falls back to posting its comments one by
+     * one, and its summary as an issue comment.
+     *
+     * @param summary Review body, or null for comments only
+     * @param issues Issues on changed lines, in file order
+     */
+    public ReviewSubmission submitReview(String owner, String repo, int prNumber,
+                                         String commitSha, String summary, List<CodeIssue> issues) {
+        int batchSize = Math.max(1, maxCommentsPerReview);
+        int batches = Math.max(1, (issues.size() + batchSize - 1) / batchSize);
+        int commentsPosted = 0;
+        boolean summaryPosted = false;
+
+        log.info("Submitting {} inline comments for PR #{} in {} review(s)", issues.size(), prNumber, batches);
+
+        for (int batch = 0; batch < batches; batch++) {
+            List<CodeIssue> comments = issues.subList(batch * batchSize, Math.min(issues.size(), (batch + 1) * batchSize));
+            String body = batch == batches - 1 ? summary : null;
+            if (comments.isEmpty() && body == null) {
+                continue;
+            }
+
+            if (postReview(owner, repo, prNumber, commitSha, body, comments)) {
+                commentsPosted += comments.size();
+                summaryPosted |= body != null;
+                continue;
+            }
+
+            // Fall back to one call per comment so a single bad line doesn't drop the rest
+            fallbackReviews.incrementAndGet();
+            log.warn("⚠️ Review {}/{} for PR #{} rejected, posting its {} comments one by one",
+                    batch + 1, batches, prNumber, comments.size());
+            int posted = postInlineComments(owner, repo, prNumber, commitSha, comments);
+            fallbackComments.addAndGet(posted);
+            commentsPosted += posted;
+            if (body != null) {
+                summaryPosted = postReviewComment(owner, repo, prNumber, body);
+            }
+        }
+
+        log.info("Posted {}/{} inline comments for PR #{}", commentsPosted, issues.size(), prNumber);
+        return new ReviewSubmission(commentsPosted, issues.size() - commentsPosted, summaryPosted);
+    }
+
+    /**
+     * Publish a review against what the bot already posted on the PR
+     * The bot's existing comments are listed once. Issues whose fingerprint is already
+     * commented on are skipped, and comments in reviewedFiles whose issue is gone are
+     * minimized as outdated. The summary comment is edited in place, or created on the
+     * first review.
+     *
+     * @param issues Fingerprinted issues on changed lines, in file order
+     * @param reviewedFiles Files reviewed successfully in this run; only their comments can go stale
+     */
+    public ReviewSubmission publishReview(String owner, String repo, int prNumber, String commitSha,
+                                          String summary, List<CodeIssue> issues, Set<String> reviewedFiles) {
+        ExistingComments existing = fetchExistingComments(owner, repo, prNumber);
+
+        // New findings only, and each fingerprint once
+        Map<String, CodeIssue> current = new LinkedHashMap<>();
+        List<CodeIssue> fresh = new ArrayList<>();
+        for (CodeIssue issue : issues) {
+            String fingerprint = issue.getFingerprint();
+            if (fingerprint == null) {
+                fresh.add(issue);
+            } else if (current.putIfAbsent(fingerprint, issue) == null && !existing.inline().containsKey(fingerprint)) {
+                fresh.add(issue);
+            }
+        }
+        duplicatesSkipped.addAndGet(issues.size() - fresh.size());
+        log.info("{} of {} issues on PR #{} are new", fresh.size(), issues.size(), prNumber);
+
+        ReviewSubmission submission = fresh.isEmpty()
+                ? new ReviewSubmission(0, 0, false)
+                : submitReview(owner, repo, prNumber, commitSha, null, fresh);
+
+        // Minimize comments whose issue has disappeared
+        for (ExistingComment comment : existing.inline().values()) {
+            if (!current.containsKey(comment.fingerprint()) && reviewedFiles.contains(comment.path())) {
+                minimizeComment(comment.nodeId());
+            }
+        }
+
+        boolean summaryPosted = existing.summaryId() != null
+                ? editIssueComment(owner, repo, existing.summaryId(), summary)
+                : postReviewComment(owner, repo, prNumber, summary + "\n" + SUMMARY_MARKER);
+        return new ReviewSubmission(submission.commentsPosted(), submission.commentsFailed(), summaryPosted);
+    }
+
+    /**
+     * List the bot's inline comments (by fingerprint) and its summary comment in one pass
+     * Markers count only in comments the bot wrote itself, so anyone else quoting one
+     * cannot hide a finding or take over the summary. A failed listing is treated as
+     * "nothing posted yet"
+     */
+    private ExistingComments fetchExistingComments(String owner, String repo, int prNumber) {
+        Map<String, ExistingComment> inline = new HashMap<>();
+        Long summaryId = null;
+
+        try {
+            String login = botLogin();
+
+            for (JsonNode comment : listAll(String.format(
+                    "https://api.github.com/repos/%s/%s/pulls/%d/comments?per_page=100", owner, repo, prNumber))) {
+                if (!isOwnComment(comment, login)) {
+                    continue;
+                }
+                Matcher marker = FINGERPRINT_MARKER.matcher(comment.path("body").asText());
+                if (marker.find()) {
+                    inline.putIfAbsent(marker.group(1), new ExistingComment(
+                            comment.path("node_id").asText(), comment.path("path").asText(), marker.group(1)));
+                }
+            }
+
+            for (JsonNode comment : listAll(String.format(
+                    "https://api.github.com/repos/%s/%s/issues/%d/comments?per_page=100", owner, repo, prNumber))) {
+                if (isOwnComment(comment, login) && comment.path("body").asText().contains(SUMMARY_MARKER)) {
+                    summaryId = comment.path("id").asLong();
+                }
+            }
+        } catch (Exception e) {
+            log.warn("⚠️ Could not list existing comments on PR #{}, posting everything: {}", prNumber, e.getMessage());
+            return new ExistingComments(Map.of(), null);
+        }
+
+        log.info("Found {} fingerprinted comments on PR #{} (summary: {})",
+                inline.size(), prNumber, summaryId != null ? summaryId : "none");
+        return new ExistingComments(inline, summaryId);
+    }
+
+    /**
+     * Login of the account this review posts as: the app's bot user when the review has an
+     * installation token, otherwise the owner of the PAT (GET /user, once)
+     */
+    private String botLogin() {
+        if (ReviewContext.currentUsesInstallation()) {
+            return gitHubAppAuthService.getBotLogin();
+        }
+
+        String login = patLogin;
+        if (login == null) {
+            JsonNode user = restTemplate.exchange(
+                    "https://api.github.com/user",
+                    HttpMethod.GET,
+                    new HttpEntity<>(createHeaders()),
+                    JsonNode.class
+            ).getBody();
+
+            login = user != null ? user.path("login").asText(null) : null;
+            if (login == null) {
+                throw new IllegalStateException("GitHub did not return the authenticated user");
+            }
+            patLogin = login;
+        }
+        return login;
+    }
+
+    /**
+     * Whether a comment was written by the bot: by its login, or (in App mode) through the app
+     */
+    private boolean isOwnComment(JsonNode comment, String login) {
+        if (login.equalsIgnoreCase(comment.path("user").path("login").asText())) {
+            return true;
+        }
+        JsonNode app = comment.path("performed_via_github_app");
+        return ReviewContext.currentUsesInstallation()
+                && app.hasNonNull("id")
+                && app.path("id").asText().equals(gitHubAppAuthService.getAppId());
+    }
+
+    /**
+     * Follow rel="next" links and collect the elements of every page
+     */
+    private List<JsonNode> listAll(String url) {
+        List<JsonNode> elements = new ArrayList<>();
+        String next = url;
+
+        while (next != null) {
+            ResponseEntity<JsonNode> response = restTemplate.exchange(
+                    URI.create(next),
+                    HttpMethod.GET,
+                    new HttpEntity<>(createHeaders()),
+                    JsonNode.class
+            );
+
+            JsonNode page = response.getBody();
+            if (page != null) {
+                page.forEach(elements::add);
+            }
+
+            String link = response.getHeaders().getFirst(HttpHeaders.LINK);
+            Matcher matcher = link != null ? NEXT_LINK.matcher(link) : null;
+            next = matcher != null && matcher.find() ? matcher.group(1) : null;
+        }
+
+        return elements;
+    }
+
+    /**
+     * Replace the body of an issue comment (the summary) in place
+     */
+    private boolean editIssueComment(String owner, String repo, long commentId, String body) {
+        String url = String.format(
+                "https://api.github.com/repos/%s/%s/issues/comments/%d",
+                owner, repo, commentId
+        );
+
+        try {
+            ResponseEntity<String> response = restTemplate.exchange(
+                    url,
+                    HttpMethod.PATCH,
+                    new HttpEntity<>(Map.of("body", formatReviewComment(body) + "\n" + SUMMARY_MARKER), createHeaders()),
+                    String.class
+            );
+
+            summariesEdited.incrementAndGet();
+            log.info("✅ Summary comment {} updated", commentId);
+            return response.getStatusCode().is2xxSuccessful();
+
+        } catch (Exception e) {
+            log.error("❌ Error updating summary comment {}: {}", commentId, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Collapse an inline comment as outdated (GraphQL minimizeComment, no REST equivalent)
+     */
+    private void minimizeComment(String nodeId) {
+        if (nodeId == null || nodeId.isEmpty()) {
+            return;
+        }
+        synchronized (minimizedComments) {
+            if (minimizedComments.contains(nodeId)) {
+                return;
+            }
+        }
+
+        Map<String, Object> request = Map.of(
+                "query", "mutation($id: ID!) { minimizeComment(input: {subjectId: $id, classifier: OUTDATED}) "
+                        + "{ minimizedComment { isMinimized } } }",
+                "variables", Map.of("id", nodeId)
+        );
+
+        try {
+            ResponseEntity<JsonNode> response = restTemplate.exchange(
+                    "https://api.github.com/graphql",
+                    HttpMethod.POST,
+                    new HttpEntity<>(request, createHeaders()),
+                    JsonNode.class
+            );
+
+            // GraphQL reports failures in the body with a 200
+            JsonNode body = response.getBody();
+            if (body != null && body.hasNonNull("errors")) {
+                log.warn("⚠️ Could not minimize comment {}: {}", nodeId, body.get("errors"));
+                return;
+            }
+
+            synchronized (minimizedComments) {
+                minimizedComments.add(nodeId);
+            }
+            staleMinimized.incrementAndGet();
+            log.info("Minimized outdated comment {}", nodeId);
+
+        } catch (Exception e) {
+            log.warn("⚠️ Error minimizing comment {}: {}", nodeId, e.getMessage());
+        }
+    }
+
+    /**
+     * Output channel configured for a repository
+     */
+    public OutputChannel outputChannelOf(String owner, String repo) {
+        return outputChannels.getOrDefault((owner + "/" + repo).toLowerCase(Locale.ROOT), defaultChannel);
+    }
+
+    /**
+     * Create an in-progress check run on the head commit
+     * Check runs can only be written with GitHub App installation tokens.
+     *
+     * @return The check run, or null if it could not be created
+     */
+    public CheckRun startCheckRun(String owner, String repo, String headSha) {
+        String url = String.format("https://api.github.com/repos/%s/%s/check-runs", owner, repo);
+
+        Map<String, Object> requestBody = Map.of(
+                "name", checkRunName,
+                "head_sha", headSha,
+                "status", "in_progress"
+        );
+
+        try {
+            ResponseEntity<JsonNode> response = restTemplate.exchange(
+                    url,
+                    HttpMethod.POST,
+                    new HttpEntity<>(requestBody, createHeaders()),
+                    JsonNode.class
+            );
+
+            JsonNode body = response.getBody();
+            if (body == null || !body.hasNonNull("id")) {
+                log.warn("⚠️ Check run response for {}/{} has no id", owner, repo);
+                return null;
+            }
+
+            checkRunsCreated.incrementAndGet();
+            log.info("✅ Check run {} started on {}", body.get("id").asLong(), headSha);
+            return new CheckRun(owner, repo, body.get("id").asLong());
+
+        } catch (Exception e) {
+            log.error("❌ Error creating check run: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Split issues into batches that fit one check run update
+     */
+    public static List<List<CodeIssue>> annotationBatches(List<CodeIssue> issues) {
+        List<List<CodeIssue>> batches = new ArrayList<>();
+        for (int start = 0; start < issues.size(); start += ANNOTATIONS_PER_REQUEST) {
+            batches.add(List.copyOf(issues.subList(start, Math.min(issues.size(), start + ANNOTATIONS_PER_REQUEST))));
+        }
+        return batches;
+    }
+
+    /**
+     * Append one batch of annotations (at most ANNOTATIONS_PER_REQUEST, see annotationBatches)
+     * Safe to call for several files at once; GitHub appends annotations.
+     *
+     * @return true if the batch was written
+     */
+    public boolean addAnnotations(CheckRun checkRun, List<CodeIssue> batch) {
+        if (batch.size() > ANNOTATIONS_PER_REQUEST) {
+            throw new IllegalArgumentException("At most " + ANNOTATIONS_PER_REQUEST + " annotations per update");
+        }
+
+        List<Map<String, Object>> annotations = new ArrayList<>(batch.size());
+        for (CodeIssue issue : batch) {
+            annotations.add(toAnnotation(issue));
+        }
+
+        Map<String, Object> output = new HashMap<>();
+        output.put("title", "Review in progress");
+        output.put("summary", String.format("%d findings so far", checkRun.annotations.get() + batch.size()));
+        output.put("annotations", annotations);
+
+        if (!updateCheckRun(checkRun, Map.of("output", output))) {
+            return false;
+        }
+
+        annotationRequests.incrementAndGet();
+        annotationsPosted.addAndGet(batch.size());
+        checkRun.annotations.addAndGet(batch.size());
+        return true;
+    }
+
+    /**
+     * Complete a check run with the review summary
+     * The conclusion follows the review's findings, whether or not every annotation
+     * batch could be written: failure if any finding is error-level, neutral for other
+     * findings, success for none.
+     *
+     * @param findings Every finding of the review on changed lines
+     */
+    public boolean completeCheckRun(CheckRun checkRun, List<CodeIssue> findings, String summary) {
+        long errors = findings.stream().filter(issue -> "failure".equals(annotationLevelOf(issue))).count();
+        String conclusion = errors > 0 ? "failure" : !findings.isEmpty() ? "neutral" : "success";
+
+        String title = findings.isEmpty() ? "No issues found"
+                : String.format("%d issues (%d errors)", findings.size(), errors);
+        if (checkRun.annotations.get() < findings.size()) {
+            title += String.format(", %d annotated", checkRun.annotations.get());
+        }
+        return finishCheckRun(checkRun, conclusion, title, summary);
+    }
+
+    /**
+     * Complete a check run that did not run to the end (cancelled or failed review)
+     */
+    public boolean abortCheckRun(CheckRun checkRun, String conclusion, String reason) {
+        return finishCheckRun(checkRun, conclusion, "Review did not complete", reason);
+    }
+
+    private boolean finishCheckRun(CheckRun checkRun, String conclusion, String title, String summary) {
+        if (summary.length() > MAX_CHECK_SUMMARY_CHARS) {
+            summary = summary.substring(0, MAX_CHECK_SUMMARY_CHARS - 1) + "…";
+        }
+
+        Map<String, Object> requestBody = Map.of(
+                "status", "completed",
+                "conclusion", conclusion,
+                "output", Map.of("title", title, "summary", summary)
+        );
+
+        boolean completed = updateCheckRun(checkRun, requestBody);
+        if (completed) {
+            log.info("✅ Check run {} completed: {}", checkRun.getId(), conclusion);
+        }
+        return completed;
+    }
+
+    private boolean updateCheckRun(CheckRun checkRun, Map<String, Object> requestBody) {
+        String url = String.format(
+                "https://api.github.com/repos/%s/%s/check-runs/%d",
+                checkRun.getOwner(), checkRun.getRepo(), checkRun.getId()
+        );
+
+        try {
+            ResponseEntity<String> response = restTemplate.exchange(
+                    url,
+                    HttpMethod.PATCH,
+                    new HttpEntity<>(requestBody, createHeaders()),
+                    String.class
+            );
+            return response.getStatusCode().is2xxSuccessful();
+
+        } catch (Exception e) {
+            log.error("❌ Error updating check run {}: {}", checkRun.getId(), e.getMessage());
+            return false;
+        }
+    }
+
+    private static Map<String, Object> toAnnotation(CodeIssue issue) {
+        String message = issue.getDescription() != null ? issue.getDescription() : "";
+        if (issue.getSuggestion() != null && !issue.getSuggestion().isEmpty()) {
+            message += "\n\nSuggestion: " + issue.getSuggestion();
+        }
+
+        Map<String, Object> annotation = new HashMap<>();
+        annotation.put("path", issue.getFileName());
+        annotation.put("start_line", issue.getLineNumber());
+        annotation.put("end_line", issue.getLineNumber());
+        annotation.put("annotation_level", annotationLevelOf(issue));
+        annotation.put("message", message);
+        if (issue.getIssueType() != null) {
+            annotation.put("title", issue.getIssueType());
+        }
+        if (issue.getCodeSnippet() != null && !issue.getCodeSnippet().isEmpty()) {
+            annotation.put("raw_details", issue.getCodeSnippet());
+        }
+        return annotation;
+    }
+
+    /**
+     * CodeIssue severity to check annotation level
+     */
+    static String annotationLevelOf(CodeIssue issue) {
+        String severity = issue.getSeverity() != null ? issue.getSeverity().toLowerCase(Locale.ROOT) : "";
+        return switch (severity) {
+            case "error" -> "failure";
+            case "warning" -> "warning";
+            default -> "notice";
+        };
+    }
+
+    /**
+     * Review submission metrics
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("maxCommentsPerReview", maxCommentsPerReview);
+        stats.put("reviewsSubmitted", reviewsSubmitted.get());
+        stats.put("commentsInReviews", commentsInReviews.get());
+        stats.put("fallbackReviews", fallbackReviews.get());
+        stats.put("fallbackComments", fallbackComments.get());
+        stats.put("duplicatesSkipped", duplicatesSkipped.get());
+        stats.put("staleMinimized", staleMinimized.get());
+        stats.put("summariesEdited", summariesEdited.get());
+        stats.put("checkRunsCreated", checkRunsCreated.get());
+        stats.put("annotationsPosted", annotationsPosted.get());
+        stats.put("annotationRequests", annotationRequests.get());
+        return stats;
+    }
+
+    /**
+     * Create one COMMENT review with its inline comments in a single call
+     */
+    private boolean postReview(String owner, String repo, int prNumber, String commitSha,
+                               String body, List<CodeIssue> issues) {
+        String url = String.format(
+                "https://api.github.com/repos/%s/%s/pulls/%d/reviews",
+                owner, repo, prNumber
+        );
+
+        List<Map<String, Object>> comments = new ArrayList<>(issues.size());
+        for (CodeIssue issue : issues) {
+            Map<String, Object> comment = new HashMap<>();
+            comment.put("path", issue.getFileName());
+            comment.put("line", issue.getLineNumber());
+            comment.put("side", "RIGHT");
+            comment.put("body", issue.toMarkdownComment());
+            comments.add(comment);
+        }
+
+        Map<String, Object> requestBody = new HashMap<>();
+        requestBody.put("commit_id", commitSha);
+        requestBody.put("event", "COMMENT");
+        requestBody.put("comments", comments);
+        if (body != null) {
+            requestBody.put("body", formatReviewComment(body));
+        }
+
+        try {
+            ResponseEntity<String> response = restTemplate.exchange(
+                    url,
+                    HttpMethod.POST,
+                    new HttpEntity<>(requestBody, createHeaders()),
+                    String.class
+            );
+
+            if (!response.getStatusCode().is2xxSuccessful()) {
+                log.warn("⚠️ Failed to submit review: {}", response.getStatusCode());
+                return false;
+            }
+
+            reviewsSubmitted.incrementAndGet();
+            commentsInReviews.addAndGet(issues.size());
+            log.info("✅ Submitted review with {} inline comments on PR #{}", issues.size(), prNumber);
+            return true;
+
+        } catch (Exception e) {
+            log.error("❌ Error submitting review: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Outcome of submitReview
+     */
+    public record ReviewSubmission(int commentsPosted, int commentsFailed, boolean summaryPosted) {
+
+        /**
+         * Everything was written; otherwise the publish is worth retrying
+         */
+        public boolean isComplete() {
+            return commentsFailed == 0 && summaryPosted;
+        }
+    }
+
+    /**
+     * An open check run of one review, with the number of annotations written so far
+     */
+    @Getter
+    @RequiredArgsConstructor
+    public static final class CheckRun {
+        private final String owner;
+        private final String repo;
+        private final long id;
+        private final AtomicInteger annotations = new AtomicInteger();
+    }
+
+    /**
+     * An inline comment the bot posted earlier
+     */
+    private record ExistingComment(String nodeId, String path, String fingerprint) {
+    }
+
+    /**
+     * The bot's inline comments by fingerprint, and the id of its summary comment (null if none)
+     */
+    private record ExistingComments(Map<String, ExistingComment> inline, Long summaryId) {
+    }
+}
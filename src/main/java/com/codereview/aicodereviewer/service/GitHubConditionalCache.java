@@ -0,0 +1,203 @@
+package com.codereview.aicodereviewer.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Conditional-request cache for GitHub GET requests, installed as an interceptor
+ *
+ * Responses carrying an ETag or Last-Modified are kept per URL, Accept header and credential
+ * scope. Later requests send If-None-Match / If-Modified-Since and a 304 is answered from the
+ * cached body. GitHub does not count 304s against the rate limit. The store is bounded by
+ * total body size and evicts least recently used entries.
+ */
+@Service
+@Slf4j
+public class GitHubConditionalCache implements ClientHttpRequestInterceptor {
+
+    private final GitHubRateLimitGovernor rateLimitGovernor;
+    private final long maxBytes;
+    private final long maxEntryBytes;
+
+    // Access-ordered, so iteration starts at the least recently used entry
+    private final LinkedHashMap<String, CachedResponse> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long storedBytes;
+
+    // Metrics
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public GitHubConditionalCache(GitHubRateLimitGovernor rateLimitGovernor,
+                                  @Value("${github.cache.max-bytes:33554432}") long maxBytes) {
+        this.rateLimitGovernor = rateLimitGovernor;
+        this.maxBytes = Math.max(0, maxBytes);
+        this.maxEntryBytes = this.maxBytes / 8;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body,
+                                        ClientHttpRequestExecution execution) throws IOException {
+        String key = cacheKey(request);
+        if (key == null) {
+            return execution.execute(request, body);
+        }
+
+        CachedResponse cached = get(key);
+        if (cached != null) {
+            if (cached.etag != null) {
+                request.getHeaders().setIfNoneMatch(cached.etag);
+            } else {
+                request.getHeaders().set(HttpHeaders.IF_MODIFIED_SINCE, cached.lastModified);
+            }
+        }
+
+        ClientHttpResponse response = execution.execute(request, body);
+
+        if (cached != null && response.getStatusCode().value() == HttpStatus.NOT_MODIFIED.value()) {
+            response.close();
+            hits.incrementAndGet();
+            log.debug("GitHub cache hit: {}", request.getURI());
+            return cached.copy();
+        }
+
+        misses.incrementAndGet();
+        if (!response.getStatusCode().is2xxSuccessful()) {
+            return response;
+        }
+
+        HttpHeaders headers = response.getHeaders();
+        String etag = headers.getETag();
+        String lastModified = headers.getFirst(HttpHeaders.LAST_MODIFIED);
+        if (etag == null && lastModified == null) {
+            return response;
+        }
+
+        byte[] responseBody;
+        try (response) {
+            responseBody = response.getBody().readAllBytes();
+        }
+
+        CachedResponse fresh = new CachedResponse(response.getStatusCode(), HttpHeaders.readOnlyHttpHeaders(headers),
+                responseBody, etag, lastModified);
+        put(key, fresh);
+        return fresh.copy();
+    }
+
+    /**
+     * Cache size and hit metrics
+     */
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("entries", entries.size());
+        stats.put("bytes", storedBytes);
+        stats.put("maxBytes", maxBytes);
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("evictions", evictions.get());
+        return stats;
+    }
+
+    /**
+     * Key of a cacheable request, or null if the request must not be cached
+     */
+    private String cacheKey(HttpRequest request) {
+        if (maxBytes == 0 || !HttpMethod.GET.equals(request.getMethod())) {
+            return null;
+        }
+
+        // Blobs are content-addressed and kept by the BlobStore; tarballs are streamed
+        String path = request.getURI().getPath();
+        if (path.contains("/git/blobs/") || path.contains("/tarball/")) {
+            return null;
+        }
+
+        HttpHeaders headers = request.getHeaders();
+        if (headers.getIfNoneMatch().size() > 0 || headers.containsKey(HttpHeaders.IF_MODIFIED_SINCE)) {
+            return null;
+        }
+
+        // Never share entries between credentials we cannot tell apart
+        String scope = rateLimitGovernor.scopeOf(request);
+        if (scope.equals("token") || scope.equals("app")) {
+            return null;
+        }
+
+        return scope + ' ' + headers.getFirst(HttpHeaders.ACCEPT) + ' ' + request.getURI();
+    }
+
+    private synchronized CachedResponse get(String key) {
+        return entries.get(key);
+    }
+
+    private synchronized void put(String key, CachedResponse response) {
+        if (response.body.length > maxEntryBytes) {
+            return;
+        }
+
+        CachedResponse previous = entries.put(key, response);
+        if (previous != null) {
+            storedBytes -= previous.body.length;
+        }
+        storedBytes += response.body.length;
+
+        Iterator<CachedResponse> eldest = entries.values().iterator();
+        while (storedBytes > maxBytes && eldest.hasNext()) {
+            storedBytes -= eldest.next().body.length;
+            eldest.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    /**
+     * A buffered response; copies share the body bytes
+     */
+    private record CachedResponse(HttpStatusCode status, HttpHeaders headers, byte[] body,
+                                  String etag, String lastModified) {
+
+        ClientHttpResponse copy() {
+            return new ClientHttpResponse() {
+                @Override
+                public HttpStatusCode getStatusCode() {
+                    return status;
+                }
+
+                @Override
+                public String getStatusText() {
+                    return status.toString();
+                }
+
+                @Override
+                public HttpHeaders getHeaders() {
+                    return headers;
+                }
+
+                @Override
+                public InputStream getBody() {
+                    return new ByteArrayInputStream(body);
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+        }
+    }
+}
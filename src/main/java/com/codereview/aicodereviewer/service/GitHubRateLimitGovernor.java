@@ -0,0 +1,336 @@
+package com.codereview.aicodereviewer.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shared GitHub rate-limit governor, installed as an interceptor on every GitHub RestTemplate
+ *
+ * Tracks X-RateLimit-Remaining / X-RateLimit-Reset per credential scope (installation, app JWT
+ * or PAT), paces requests when the remaining budget runs low, waits out Retry-After and
+ * exhausted budgets (retrying the request), and runs a token bucket for content-creating
+ * requests (POST/PATCH/PUT/DELETE) to stay under GitHub's secondary rate limits.
+ *
+ * No request is held back longer than max-wait-ms in total: one that would be fails at once
+ * with an IOException instead of parking its thread until the budget resets. Waits are
+ * slept in short slices and stop early when the review bound to the thread is cancelled
+ * or runs past its deadline.
+ */
+@Service
+@Slf4j
+public class GitHubRateLimitGovernor implements ClientHttpRequestInterceptor {
+
+    private static final String BEARER = "Bearer ";
+    private static final int MAX_BOUND_TOKENS = 1024;
+    // Longest single sleep before cancellation and deadline are checked again
+    private static final long WAIT_SLICE_MILLIS = 1000;
+
+    private final String personalAccessToken;
+    private final long maxWaitMillis;
+    private final int maxRetries;
+    private final int lowWatermark;
+    private final int contentBurst;
+    private final double contentPerMilli;
+
+    // Scope state, keyed by scope name ("installation:123", "app", "pat")
+    private final Map<String, ScopeState> scopes = new ConcurrentHashMap<>();
+
+    // Installation tokens -> scope name, registered when a token is minted
+    private final Map<String, String> tokenScopes = new ConcurrentHashMap<>();
+
+    // Metrics
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+    private final AtomicLong throttledMillis = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+    private final AtomicLong rateLimited = new AtomicLong();
+    private final AtomicLong refused = new AtomicLong();
+
+    public GitHubRateLimitGovernor(@Value("${github.token:}") String personalAccessToken,
+                                   @Value("${github.rate-limit.max-wait-ms:120000}") long maxWaitMillis,
+                                   @Value("${github.rate-limit.max-retries:2}") int maxRetries,
+                                   @Value("${github.rate-limit.low-watermark:100}") int lowWatermark,
+                                   @Value("${github.rate-limit.content-burst:20}") int contentBurst,
+                                   @Value("${github.rate-limit.content-per-minute:60}") int contentPerMinute) {
+        this.personalAccessToken = personalAccessToken;
+        this.maxWaitMillis = maxWaitMillis;
+        this.maxRetries = Math.max(0, maxRetries);
+        this.lowWatermark = Math.max(0, lowWatermark);
+        this.contentBurst = Math.max(1, contentBurst);
+        this.contentPerMilli = Math.max(1, contentPerMinute) / 60_000.0;
+    }
+
+    /**
+     * Longest a request can be held back: up to maxWaitMillis before each attempt; a
+     * credential handed out for a request should stay valid at least this long
+     */
+    public Duration retryBudget() {
+        return Duration.ofMillis((maxRetries + 1) * maxWaitMillis);
+    }
+
+    /**
+     * Associate an installation token with its installation, so its budget is tracked per installation
+     */
+    public void bindInstallationToken(String token, long installationId) {
+        if (token == null) {
+            return;
+        }
+        if (tokenScopes.size() >= MAX_BOUND_TOKENS) {
+            tokenScopes.clear();
+        }
+        tokenScopes.put(token, "installation:" + installationId);
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body,
+                                        ClientHttpRequestExecution execution) throws IOException {
+        ScopeState scope = scopes.computeIfAbsent(scopeOf(request), ScopeState::new);
+        boolean createsContent = createsContent(request);
+
+        for (int attempt = 0; ; attempt++) {
+            awaitPermit(scope, createsContent, request);
+            requests.incrementAndGet();
+
+            ClientHttpResponse response = execution.execute(request, body);
+            long retryAt = scope.update(response);
+
+            if (retryAt == 0) {
+                return response;
+            }
+
+            rateLimited.incrementAndGet();
+            long waitMillis = retryAt - System.currentTimeMillis();
+            if (attempt >= maxRetries || waitMillis > maxWaitMillis) {
+                log.warn("⚠️ GitHub rate limit hit for {} ({}), not retrying: {} {}",
+                        scope.name, response.getStatusCode(), request.getMethod(), request.getURI());
+                return response;
+            }
+
+            log.warn("⏳ GitHub rate limit hit for {}, retrying {} {} in {} ms",
+                    scope.name, request.getMethod(), request.getURI().getPath(), Math.max(0, waitMillis));
+            response.close();
+            retried.incrementAndGet();
+        }
+    }
+
+    /**
+     * Current budget per scope and throttling metrics
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("requests", requests.get());
+        stats.put("throttled", throttled.get());
+        stats.put("throttledMillis", throttledMillis.get());
+        stats.put("rateLimited", rateLimited.get());
+        stats.put("retried", retried.get());
+        stats.put("refused", refused.get());
+
+        Map<String, Object> perScope = new TreeMap<>();
+        scopes.values().forEach(scope -> perScope.put(scope.name, scope.getStats()));
+        stats.put("scopes", perScope);
+        return stats;
+    }
+
+    /**
+     * Block until the scope allows another request
+     *
+     * @throws IOException if that would take more than maxWaitMillis in total
+     * @throws ReviewCancelledException if the calling thread's review stops while waiting
+     */
+    private void awaitPermit(ScopeState scope, boolean createsContent, HttpRequest request) throws IOException {
+        long waitedMillis = 0;
+        long waitMillis;
+        while ((waitMillis = scope.reserve(createsContent)) > 0) {
+            if (waitedMillis + waitMillis > maxWaitMillis) {
+                refused.incrementAndGet();
+                log.warn("⚠️ GitHub rate limit for {} would hold {} {} for {} ms, failing it",
+                        scope.name, request.getMethod(), request.getURI().getPath(), waitedMillis + waitMillis);
+                throw new IOException(String.format("GitHub rate limit for %s allows no request for %d ms (max wait %d ms)",
+                        scope.name, waitMillis, maxWaitMillis));
+            }
+            ReviewContext.current().ifPresent(ReviewContext::throwIfCancelled);
+
+            long sleepMillis = Math.min(waitMillis, WAIT_SLICE_MILLIS);
+            if (waitedMillis == 0) {
+                throttled.incrementAndGet();
+            }
+            throttledMillis.addAndGet(sleepMillis);
+            try {
+                Thread.sleep(sleepMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for GitHub rate limit");
+            }
+            waitedMillis += sleepMillis;
+        }
+    }
+
+    /**
+     * Credential scope of a request: "installation:<id>", "app", "pat", "token" or "anonymous"
+     */
+    public String scopeOf(HttpRequest request) {
+        String authorization = request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        if (authorization == null || !authorization.startsWith(BEARER)) {
+            return "anonymous";
+        }
+
+        String token = authorization.substring(BEARER.length());
+        String bound = tokenScopes.get(token);
+        if (bound != null) {
+            return bound;
+        }
+        if (token.equals(personalAccessToken)) {
+            return "pat";
+        }
+        // App JWTs (header.payload.signature) share the app-level budget
+        return token.chars().filter(c -> c == '.').count() == 2 ? "app" : "token";
+    }
+
+    private static boolean createsContent(HttpRequest request) {
+        HttpMethod method = request.getMethod();
+        if (HttpMethod.GET.equals(method) || HttpMethod.HEAD.equals(method)) {
+            return false;
+        }
+        // Minting installation tokens is not content creation
+        return !request.getURI().getPath().endsWith("/access_tokens");
+    }
+
+    /**
+     * Rate-limit state of one credential scope
+     */
+    private class ScopeState {
+
+        private final String name;
+
+        private long limit = -1;
+        private long remaining = -1;
+        private long resetAtMillis;
+        private long blockedUntilMillis;
+        private long lastRequestMillis;
+
+        // Content-creation token bucket
+        private double contentTokens = contentBurst;
+        private long refilledAtMillis = System.currentTimeMillis();
+
+        ScopeState(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Take a permit if one is available
+         *
+         * @return 0 if the request may go now, otherwise how long to wait before asking again
+         */
+        synchronized long reserve(boolean createsContent) {
+            long now = System.currentTimeMillis();
+
+            if (blockedUntilMillis > now) {
+                return blockedUntilMillis - now;
+            }
+
+            // Spread a low remaining budget evenly until the window resets
+            if (remaining >= 0 && remaining < lowWatermark && resetAtMillis > now) {
+                long spacing = (resetAtMillis - now) / Math.max(1, remaining);
+                long nextAt = lastRequestMillis + spacing;
+                if (nextAt > now) {
+                    return nextAt - now;
+                }
+            }
+
+            if (createsContent) {
+                contentTokens = Math.min(contentBurst, contentTokens + (now - refilledAtMillis) * contentPerMilli);
+                refilledAtMillis = now;
+                if (contentTokens < 1) {
+                    return (long) Math.ceil((1 - contentTokens) / contentPerMilli);
+                }
+                contentTokens -= 1;
+            }
+
+            lastRequestMillis = now;
+            if (remaining > 0) {
+                remaining--;
+            }
+            return 0;
+        }
+
+        /**
+         * Record the rate-limit headers of a response
+         *
+         * @return When to retry if the response was rate limited, 0 otherwise
+         */
+        synchronized long update(ClientHttpResponse response) throws IOException {
+            HttpHeaders headers = response.getHeaders();
+            long now = System.currentTimeMillis();
+
+            long headerLimit = longHeader(headers, "X-RateLimit-Limit");
+            long headerRemaining = longHeader(headers, "X-RateLimit-Remaining");
+            long headerReset = longHeader(headers, "X-RateLimit-Reset");
+            if (headerLimit >= 0) {
+                limit = headerLimit;
+            }
+            if (headerRemaining >= 0) {
+                remaining = headerRemaining;
+            }
+            if (headerReset >= 0) {
+                resetAtMillis = headerReset * 1000;
+            }
+
+            int status = response.getStatusCode().value();
+            if (status != 403 && status != 429) {
+                return 0;
+            }
+
+            long retryAfter = longHeader(headers, HttpHeaders.RETRY_AFTER);
+            if (retryAfter >= 0) {
+                blockedUntilMillis = now + retryAfter * 1000;
+            } else if (remaining == 0 && resetAtMillis > now) {
+                blockedUntilMillis = resetAtMillis;
+            } else if (status == 429) {
+                // Secondary limit without a hint: GitHub asks for at least a minute
+                blockedUntilMillis = now + 60_000;
+            } else {
+                // A plain 403 (permissions), not a rate limit
+                return 0;
+            }
+            return blockedUntilMillis;
+        }
+
+        synchronized Map<String, Object> getStats() {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("limit", limit);
+            stats.put("remaining", remaining);
+            stats.put("resetAt", resetAtMillis);
+            stats.put("blockedForMillis", Math.max(0, blockedUntilMillis - System.currentTimeMillis()));
+            stats.put("contentTokens", Math.floor(contentTokens));
+            return stats;
+        }
+
+        private static long longHeader(HttpHeaders headers, String name) {
+            String value = headers.getFirst(name);
+            if (value == null) {
+                return -1;
+            }
+            try {
+                return Long.parseLong(value.trim());
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+    }
+}
@@ -1,13 +1,36 @@
 package com.codereview.aicodereviewer.service;
 
+import com.codereview.aicodereviewer.model.ChangedFile;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.hc.client5.http.impl.classic.EofSensorInputStream;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
 
 /**
  * Service to interact with GitHub API
@@ -22,197 +45,347 @@ public class GitHubService {
     private String githubToken;
 
     private final GitHubAppAuthService gitHubAppAuthService;
-    private final RestTemplate restTemplate = new RestTemplate();
-
-    // Thread-local storage for installation token
-    private static final ThreadLocal<String> currentToken = new ThreadLocal<>();
+    private final BlobStore blobStore;
+    private final ObjectMapper objectMapper;
+    @Qualifier("gitHubRestTemplate")
+    private final RestTemplate restTemplate;
+
+    // GitHub's maximum page size for /pulls/{n}/files
+    private static final int FILES_PER_PAGE = 100;
+    private static final Pattern NEXT_LINK = Pattern.compile("<([^>]+)>;\\s*rel=\"next\"");
+
+    // Fetches the next page of a file listing while the current one is consumed
+    private final ExecutorService pagePrefetcher =
+            Executors.newCachedThreadPool(new CustomizableThreadFactory("github-page-prefetch-"));
+
+    @PreDestroy
+    void stopPagePrefetcher() {
+        pagePrefetcher.shutdownNow();
+    }
 
     /**
-     * Set the installation token for the current request
-     * Call this at the start of processing a webhook
+     * Stream the files changed in a pull request, one page at a time
+     * Requests per_page=100 and follows the Link rel="next" header. Each page is handed to
+     * the consumer as soon as it is parsed, with the next page already requested, so the
+     * consumer can block (e.g. on review permits) without holding up the listing.
+     *
+     * @return Number of files listed
      */
-    public void setInstallationToken(String token) {
-        currentToken.set(token);
+    public int forEachChangedFilesPage(String owner, String repo, int prNumber,
+                                       Consumer<List<ChangedFile>> pageConsumer) {
+        String url = String.format(
+                "https://api.github.com/repos/%s/%s/pulls/%d/files?per_page=%d",
+                owner, repo, prNumber, FILES_PER_PAGE
+        );
+
+        int total = 0;
+        int pages = 0;
+        ChangedFilesPage page = fetchChangedFilesPage(url, createHeaders());
+
+        while (page != null) {
+            pages++;
+            total += page.files().size();
+
+            CompletableFuture<ChangedFilesPage> next = page.next() != null ? prefetch(page.next()) : null;
+            try {
+                pageConsumer.accept(page.files());
+            } catch (RuntimeException e) {
+                if (next != null) {
+                    next.cancel(false);
+                }
+                throw e;
+            }
+
+            try {
+                page = next != null ? next.join() : null;
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+
+        log.info("Found {} changed files in {} page(s)", total, pages);
+        return total;
     }
 
     /**
-     * Clear the installation token after processing
+     * Request a page of a file listing on the prefetch pool, with the caller's credentials and review context
      */
-    public void clearInstallationToken() {
-        currentToken.remove();
+    private CompletableFuture<ChangedFilesPage> prefetch(String url) {
+        HttpHeaders headers = createHeaders();
+        return CompletableFuture.supplyAsync(() -> fetchChangedFilesPage(url, headers),
+                task -> pagePrefetcher.execute(ReviewContext.propagate(task)));
+    }
+
+    private ChangedFilesPage fetchChangedFilesPage(String url, HttpHeaders headers) {
+        log.info("Fetching changed files from: {}", url);
+        return restTemplate.execute(
+                URI.create(url),
+                HttpMethod.GET,
+                request -> request.getHeaders().addAll(headers),
+                this::readChangedFilesPage
+        );
     }
 
     /**
-     * Get list of files changed in a pull request
+     * Get the raw content of a file from GitHub
      */
-    public List<Map<String, Object>> getChangedFiles(String owner, String repo, int prNumber) {
+    public String getFileContent(String owner, String repo, String path, String ref) {
         String url = String.format(
-                "https://api.github.com/repos/%s/%s/pulls/%d/files",
-                owner, repo, prNumber
+                "https://api.github.com/repos/%s/%s/contents/%s?ref=%s",
+                owner, repo, path, ref
         );
 
-        log.info("Fetching changed files from: {}", url);
+        log.info("Fetching file content: {}", path);
 
         HttpHeaders headers = createHeaders();
+        headers.setAccept(Collections.singletonList(MediaType.valueOf("application/vnd.github.raw")));
         HttpEntity<String> entity = new HttpEntity<>(headers);
 
         try {
-            ResponseEntity<List> response = restTemplate.exchange(
+            ResponseEntity<String> response = restTemplate.exchange(
                     url,
                     HttpMethod.GET,
                     entity,
-                    List.class
+                    String.class
             );
 
-            List<Map<String, Object>> files = response.getBody();
-            log.info("Found {} changed files", files != null ? files.size() : 0);
-
-            return files != null ? files : new ArrayList<>();
+            return response.getBody();
 
         } catch (Exception e) {
-            log.error("Error fetching files: {}", e.getMessage());
-            return new ArrayList<>();
+            log.error("Error fetching file content: {}", e.getMessage());
+            return null;
         }
     }
 
     /**
-     * Get the raw content of a file from GitHub
+     * Get the content of a file version by its git blob SHA
+     * Served from the local blob store when possible, otherwise fetched
+     * through the git blobs API and stored
      */
-    public String getFileContent(String owner, String repo, String path, String ref) {
+    public String getBlobContent(String owner, String repo, String blobSha) {
+        String cached = blobStore.get(blobSha);
+        if (cached != null) {
+            log.info("Blob {} served from local store", blobSha);
+            return cached;
+        }
+
         String url = String.format(
-                "https://api.github.com/repos/%s/%s/contents/%s?ref=%s",
-                owner, repo, path, ref
+                "https://api.github.com/repos/%s/%s/git/blobs/%s",
+                owner, repo, blobSha
         );
 
-        log.info("Fetching file content: {}", path);
+        log.info("Fetching blob: {}", blobSha);
 
         HttpHeaders headers = createHeaders();
         headers.setAccept(Collections.singletonList(MediaType.valueOf("application/vnd.github.raw")));
         HttpEntity<String> entity = new HttpEntity<>(headers);
 
         try {
-            ResponseEntity<String> response = restTemplate.exchange(
+            ResponseEntity<byte[]> response = restTemplate.exchange(
                     url,
                     HttpMethod.GET,
                     entity,
-                    String.class
+                    byte[].class
             );
 
-            return response.getBody();
+            byte[] content = response.getBody();
+            if (content == null) {
+                return null;
+            }
+
+            blobStore.put(blobSha, content);
+            return new String(content, StandardCharsets.UTF_8);
 
         } catch (Exception e) {
-            log.error("Error fetching file content: {}", e.getMessage());
+            log.error("Error fetching blob {}: {}", blobSha, e.getMessage());
             return null;
         }
     }
 
     /**
-     * Filter only Java files from changed files
+     * Read the contents of many files from one download of the repository tarball at a ref
+     * The gzip stream is decompressed on the fly and only the requested paths are kept,
+     * in memory; nothing is extracted to disk. Contents with a known blob SHA are also
+     * added to the blob store.
+     *
+     * @param blobShasByPath Paths to keep, mapped to their blob SHA (may be null)
+     * @return Contents by path; paths not found in the tarball are missing from the map
      */
-    public List<Map<String, Object>> filterJavaFiles(List<Map<String, Object>> files) {
-        return files.stream()
-                .filter(file -> {
-                    String filename = (String) file.get("filename");
-                    return filename != null && filename.endsWith(".java");
-                })
-                .toList();
+    public Map<String, String> getContentsFromTarball(String owner, String repo, String ref,
+                                                      Map<String, String> blobShasByPath) {
+        String url = String.format(
+                "https://api.github.com/repos/%s/%s/tarball/%s",
+                owner, repo, ref
+        );
+
+        log.info("Fetching tarball for {} files: {}", blobShasByPath.size(), url);
+
+        HttpHeaders headers = createHeaders();
+
+        try {
+            Map<String, String> contents = restTemplate.execute(
+                    URI.create(url),
+                    HttpMethod.GET,
+                    request -> request.getHeaders().addAll(headers),
+                    response -> readTarball(response.getBody(), blobShasByPath)
+            );
+
+            log.info("Read {}/{} files from tarball", contents != null ? contents.size() : 0, blobShasByPath.size());
+            return contents != null ? contents : new HashMap<>();
+
+        } catch (Exception e) {
+            log.error("Error fetching tarball, falling back to per-file requests: {}", e.getMessage());
+            return new HashMap<>();
+        }
     }
 
     /**
-     * Get the line numbers that were changed (added or modified) in a PR file
+     * Keep the requested paths of a gzipped tarball, reading it only until all of them are found
+     *
+     * @param body Response body; aborted once everything is found, so the rest is never downloaded
      */
-    public List<Integer> getChangedLines(String owner, String repo, int prNumber, String fileName) {
-        List<Integer> changedLines = new ArrayList<>();
+    Map<String, String> readTarball(InputStream body, Map<String, String> blobShasByPath) throws IOException {
+        Map<String, String> contents = new HashMap<>();
+
+        try (TarArchiveInputStream tar = new TarArchiveInputStream(new GZIPInputStream(body))) {
+            TarArchiveEntry entry;
+            while (contents.size() < blobShasByPath.size() && (entry = tar.getNextEntry()) != null) {
+                if (!entry.isFile()) {
+                    continue;
+                }
 
-        try {
-            String url = String.format("https://api.github.com/repos/%s/%s/pulls/%d/files",
-                    owner, repo, prNumber);
+                // Entries are prefixed with a top-level "owner-repo-sha/" directory
+                String name = entry.getName();
+                String path = name.substring(name.indexOf('/') + 1);
+                if (!blobShasByPath.containsKey(path)) {
+                    continue;
+                }
 
-            ResponseEntity<List> response = restTemplate.exchange(
-                    url,
-                    HttpMethod.GET,
-                    new HttpEntity<>(createHeaders()),
-                    List.class
-            );
+                byte[] content = tar.readAllBytes();
+                contents.put(path, new String(content, StandardCharsets.UTF_8));
+
+                String blobSha = blobShasByPath.get(path);
+                if (blobSha != null) {
+                    blobStore.put(blobSha, content);
+                }
+            }
 
-            if (response.getBody() == null) {
-                log.warn("No files found in PR");
-                return changedLines;
+            if (contents.size() == blobShasByPath.size()) {
+                abortDownload(body);
             }
+        }
 
-            for (Object fileObj : response.getBody()) {
-                Map<String, Object> file = (Map<String, Object>) fileObj;
-                String fileNameInPR = (String) file.get("filename");
+        return contents;
+    }
 
-                if (fileNameInPR.equals(fileName)) {
-                    String patch = (String) file.get("patch");
+    /**
+     * Drop the connection under a response body instead of letting close() read the rest of it
+     * HttpClient drains a body on close so the connection can be reused; for a tarball we stop
+     * early in, that would still transfer the whole archive
+     */
+    private static void abortDownload(InputStream body) throws IOException {
+        if (body instanceof EofSensorInputStream stream) {
+            stream.abortConnection();
+        }
+    }
 
-                    if (patch != null) {
-                        changedLines = parseDiffPatch(patch);
-                        log.info("Found {} changed lines in {}", changedLines.size(), fileName);
+    /**
+     * Get the line numbers that were changed (added or modified) in a PR file
+     * Pages of the file listing are read only until the file turns up
+     */
+    public List<Integer> getChangedLines(String owner, String repo, int prNumber, String fileName) {
+        ChangedFile file = null;
+        try {
+            forEachChangedFilesPage(owner, repo, prNumber, page -> {
+                for (ChangedFile changed : page) {
+                    if (fileName.equals(changed.getFilename())) {
+                        throw new FileFound(changed);
                     }
-                    break;
                 }
-            }
+            });
+        } catch (FileFound found) {
+            file = found.file;
+        }
 
-        } catch (Exception e) {
-            log.error("Error getting changed lines: {}", e.getMessage(), e);
+        if (file == null) {
+            log.warn("{} is not part of PR #{}", fileName, prNumber);
+            return new ArrayList<>();
         }
 
+        List<Integer> changedLines = file.getChangedLines();
+        log.info("Found {} changed lines in {}", changedLines.size(), fileName);
         return changedLines;
     }
 
     /**
-     * Parse GitHub diff patch format to extract line numbers
+     * Read one page of GET /pulls/{n}/files with the streaming parser
+     * Only the fields of ChangedFile are kept; the rest of each entry is skipped
      */
-    private List<Integer> parseDiffPatch(String patch) {
-        List<Integer> changedLines = new ArrayList<>();
-
-        String[] lines = patch.split("\n");
-        int currentLine = 0;
-
-        for (String line : lines) {
-            if (line.startsWith("@@")) {
-                String[] parts = line.split("\\+");
-                if (parts.length > 1) {
-                    String lineInfo = parts[1].split(",")[0].split(" ")[0];
-                    try {
-                        currentLine = Integer.parseInt(lineInfo);
-                    } catch (NumberFormatException e) {
-                        log.warn("Could not parse line number from: {}", line);
-                    }
-                }
-                continue;
+    private ChangedFilesPage readChangedFilesPage(ClientHttpResponse response) throws IOException {
+        List<ChangedFile> files = new ArrayList<>();
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(response.getBody())) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Changed files response is not a JSON array");
             }
 
-            if (currentLine == 0) {
-                continue;
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                files.add(readChangedFile(parser));
             }
+        }
+
+        return new ChangedFilesPage(files, nextPageUrl(response.getHeaders().getFirst(HttpHeaders.LINK)));
+    }
 
-            if (line.startsWith("+")) {
-                changedLines.add(currentLine);
-                currentLine++;
-            } else if (line.startsWith("-")) {
-                // Removed line, don't increment
-            } else {
-                currentLine++;
+    private ChangedFile readChangedFile(JsonParser parser) throws IOException {
+        ChangedFile.ChangedFileBuilder file = ChangedFile.builder();
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+
+            switch (field) {
+                case "filename" -> file.filename(parser.getValueAsString());
+                case "previous_filename" -> file.previousFilename(parser.getValueAsString());
+                case "status" -> file.status(parser.getValueAsString());
+                case "sha" -> file.blobSha(parser.getValueAsString());
+                case "additions" -> file.additions(parser.getValueAsInt());
+                case "deletions" -> file.deletions(parser.getValueAsInt());
+                case "patch" -> {
+                    String patch = parser.getValueAsString();
+                    if (patch != null) {
+                        file.hunks(DiffPatchParser.parse(patch));
+                    }
+                }
+                default -> parser.skipChildren();
             }
         }
 
-        return changedLines;
+        return file.build();
+    }
+
+    /**
+     * Extract the rel="next" URL from a Link header, or null on the last page
+     */
+    private static String nextPageUrl(String linkHeader) {
+        if (linkHeader == null) {
+            return null;
+        }
+        Matcher matcher = NEXT_LINK.matcher(linkHeader);
+        return matcher.find() ? matcher.group(1) : null;
     }
 
     /**
      * Create HTTP headers with authentication
-     * UPDATED: Now uses installation token if available, falls back to PAT
+     * UPDATED: Now uses the installation token of the current review context if available, falls back to PAT
      */
     private HttpHeaders createHeaders() {
         HttpHeaders headers = new HttpHeaders();
         headers.set("Accept", "application/vnd.github+json");
         headers.set("X-GitHub-Api-Version", "2022-11-28");
 
-        // Priority 1: Use installation token if set (GitHub App mode)
-        String installationToken = currentToken.get();
+        // Priority 1: Use the review's installation token (GitHub App mode)
+        String installationToken = ReviewContext.currentInstallationToken();
         if (installationToken != null && !installationToken.isEmpty()) {
             headers.set("Authorization", "Bearer " + installationToken);
             log.debug("Using GitHub App installation token");
@@ -225,4 +398,20 @@ public class GitHubService {
 
         return headers;
     }
-}
\ No newline at end of file
+
+    private record ChangedFilesPage(List<ChangedFile> files, String next) {
+    }
+
+    /**
+     * Thrown by a page consumer to stop a file listing once the file it wants is found
+     */
+    private static final class FileFound extends RuntimeException {
+
+        private final ChangedFile file;
+
+        FileFound(ChangedFile file) {
+            super(null, null, false, false);
+            this.file = file;
+        }
+    }
+}
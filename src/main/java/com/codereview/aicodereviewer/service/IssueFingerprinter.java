@@ -0,0 +1,119 @@
+package com.codereview.aicodereviewer.service;
+
+import com.codereview.aicodereviewer.model.CodeIssue;
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.CallableDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Gives each issue a fingerprint that survives re-reviews of the same PR
+ *
+ * The fingerprint hashes the file, the issue type, the enclosing method and the
+ * whitespace-normalized code snippet, but not the line number, so an issue keeps
+ * its identity when unrelated edits move it up or down.
+ */
+@Service
+@Slf4j
+public class IssueFingerprinter {
+
+    private final JavaParser javaParser = new JavaParser();
+
+    /**
+     * Set the fingerprint of each issue found in one file
+     *
+     * @param content The file content the issues refer to
+     */
+    public void fingerprint(List<CodeIssue> issues, String content, String fileName) {
+        if (issues.isEmpty()) {
+            return;
+        }
+
+        CompilationUnit cu = null;
+        try {
+            ParseResult<CompilationUnit> parseResult = javaParser.parse(content);
+            cu = parseResult.getResult().orElse(null);
+        } catch (Exception e) {
+            log.debug("Could not parse {} for fingerprints: {}", fileName, e.getMessage());
+        }
+
+        String[] lines = content.split("\n", -1);
+        for (CodeIssue issue : issues) {
+            String snippet = issue.getCodeSnippet();
+            if (snippet == null || snippet.isBlank()) {
+                int index = issue.getLineNumber() - 1;
+                snippet = index >= 0 && index < lines.length ? lines[index] : "";
+            }
+
+            issue.setFingerprint(hash(fileName, issue.getIssueType(),
+                    enclosingMember(cu, issue.getLineNumber()), normalize(snippet)));
+        }
+    }
+
+    /**
+     * Innermost method or constructor around a line, as "Type.name(ParamTypes)",
+     * else the innermost type, else empty
+     */
+    static String enclosingMember(CompilationUnit cu, int line) {
+        if (cu == null) {
+            return "";
+        }
+
+        Node innermost = null;
+        for (Node node : cu.findAll(Node.class, n -> n instanceof CallableDeclaration || n instanceof TypeDeclaration)) {
+            if (node.getRange().map(range -> range.begin.line <= line && line <= range.end.line).orElse(false)) {
+                // findAll walks top-down, so later matches are nested deeper
+                innermost = node;
+            }
+        }
+
+        if (innermost instanceof CallableDeclaration<?> callable) {
+            String type = callable.findAncestor(TypeDeclaration.class)
+                    .map(TypeDeclaration::getNameAsString)
+                    .orElse("");
+            return type + "." + callable.getSignature().asString();
+        }
+        if (innermost instanceof TypeDeclaration<?> type) {
+            return type.getNameAsString();
+        }
+        return "";
+    }
+
+    /**
+     * Drop all whitespace so reformatting does not change the fingerprint
+     */
+    static String normalize(String snippet) {
+        StringBuilder normalized = new StringBuilder(snippet.length());
+        for (int i = 0; i < snippet.length(); i++) {
+            char c = snippet.charAt(i);
+            if (!Character.isWhitespace(c)) {
+                normalized.append(c);
+            }
+        }
+        return normalized.toString();
+    }
+
+    private static String hash(String... parts) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            for (String part : parts) {
+                sha256.update(String.valueOf(part).getBytes(StandardCharsets.UTF_8));
+                sha256.update((byte) 0);
+            }
+            // 64 bits are plenty to tell apart the issues of one PR
+            return HexFormat.of().formatHex(sha256.digest(), 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
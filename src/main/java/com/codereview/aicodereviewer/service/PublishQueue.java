@@ -0,0 +1,283 @@
+package com.codereview.aicodereviewer.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded queue of outbound GitHub writes, run on its own workers
+ *
+ * Reviews hand their writes (comments, annotations, summaries) to the queue and move on,
+ * so a slow or failing write never holds up the analysis of the next file. Writes of one
+ * pull request run one at a time in submission order; different pull requests run in
+ * parallel. A write that fails is retried with exponential backoff and full jitter, while
+ * later writes of the same pull request wait behind it. Each write carries an idempotency
+ * key: a key that is already queued or recently completed is not run again.
+ *
+ * On shutdown, queued writes get a bounded time to finish before the workers are stopped.
+ */
+@Service
+@Slf4j
+public class PublishQueue {
+
+    private static final int MAX_COMPLETED_REMEMBERED = 10_000;
+
+    private final int capacity;
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private final long drainTimeoutMillis;
+    private final ScheduledExecutorService workers;
+
+    // Pending writes per pull request; a PR is in "running" while one of its writes is executing or backing off
+    private final Map<String, Deque<PublishTask>> queues = new HashMap<>();
+    private final Set<String> running = new HashSet<>();
+    private final Set<String> pendingKeys = new HashSet<>();
+    private final Set<String> completedKeys = Collections.newSetFromMap(new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > MAX_COMPLETED_REMEMBERED;
+        }
+    });
+    // Completed once the pull request has no writes left
+    private final Map<String, CompletableFuture<Void>> drainWaiters = new HashMap<>();
+    private int pending;
+
+    // Metrics
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong deduplicated = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+
+    public PublishQueue(@Value("${github.publish.workers:4}") int workerCount,
+                        @Value("${github.publish.queue-capacity:1000}") int capacity,
+                        @Value("${github.publish.max-attempts:5}") int maxAttempts,
+                        @Value("${github.publish.initial-backoff-ms:500}") long initialBackoffMillis,
+                        @Value("${github.publish.max-backoff-ms:30000}") long maxBackoffMillis,
+                        @Value("${github.publish.drain-timeout-ms:30000}") long drainTimeoutMillis) {
+        this.capacity = capacity;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialBackoffMillis = Math.max(1, initialBackoffMillis);
+        this.maxBackoffMillis = Math.max(this.initialBackoffMillis, maxBackoffMillis);
+        this.drainTimeoutMillis = drainTimeoutMillis;
+        this.workers = Executors.newScheduledThreadPool(Math.max(1, workerCount),
+                new CustomizableThreadFactory("github-publish-"));
+
+        log.info("📤 Publish queue started: {} workers, capacity {}, {} attempts per write",
+                workerCount, capacity, this.maxAttempts);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        synchronized (this) {
+            // Let queued writes finish; reviews whose writes are cut off stay in the journal
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(drainTimeoutMillis);
+            try {
+                while (pending > 0) {
+                    long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    wait(remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (pending > 0) {
+                log.warn("⚠️ Publish queue stopped with {} writes pending", pending);
+            }
+        }
+        workers.shutdownNow();
+    }
+
+    /**
+     * Queue a write; never blocks
+     *
+     * @param prKey Pull request the write belongs to ("owner/repo#number"); writes of one PR keep their order
+     * @param idempotencyKey Identity of the write; duplicates of a queued or completed write are ignored
+     * @param write Returns true on success; false or an exception means the write is retried
+     * @param cancellation Writes still queued once this is cancelled are skipped
+     * @return false if the queue is full and the write was dropped
+     */
+    public boolean submit(String prKey, String idempotencyKey, Callable<Boolean> write,
+                          CancellationToken cancellation) {
+        PublishTask task = new PublishTask(idempotencyKey, write, cancellation);
+
+        synchronized (this) {
+            if (pendingKeys.contains(idempotencyKey) || completedKeys.contains(idempotencyKey)) {
+                deduplicated.incrementAndGet();
+                log.debug("Write {} already queued or done", idempotencyKey);
+                return true;
+            }
+            if (pending >= capacity) {
+                dropped.incrementAndGet();
+                log.warn("⚠️ Publish queue full ({} writes), dropping {}", pending, idempotencyKey);
+                return false;
+            }
+
+            queues.computeIfAbsent(prKey, key -> new ArrayDeque<>()).addLast(task);
+            pendingKeys.add(idempotencyKey);
+            pending++;
+            submitted.incrementAndGet();
+
+            if (!running.add(prKey)) {
+                // The PR's current write will hand over to this one
+                return true;
+            }
+        }
+
+        dispatch(prKey, 0);
+        return true;
+    }
+
+    /**
+     * Completes once every write queued so far for a pull request has succeeded, failed
+     * for good or been skipped; right away if none is queued. Never completes for writes
+     * abandoned at shutdown.
+     */
+    public synchronized CompletableFuture<Void> whenDrained(String prKey) {
+        if (!queues.containsKey(prKey)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return drainWaiters.computeIfAbsent(prKey, key -> new CompletableFuture<>());
+    }
+
+    /**
+     * Queue size and write outcome metrics
+     */
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("pending", pending);
+        stats.put("capacity", capacity);
+        stats.put("pullRequests", queues.size());
+        stats.put("submitted", submitted.get());
+        stats.put("completed", completed.get());
+        stats.put("retried", retried.get());
+        stats.put("failed", failed.get());
+        stats.put("dropped", dropped.get());
+        stats.put("deduplicated", deduplicated.get());
+        stats.put("skipped", skipped.get());
+        return stats;
+    }
+
+    private void dispatch(String prKey, long delayMillis) {
+        try {
+            workers.schedule(() -> runHead(prKey), delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            log.warn("Publish queue is shut down, abandoning writes of {}", prKey);
+        }
+    }
+
+    /**
+     * Run one attempt of the oldest write of a pull request, then retry it or move on
+     */
+    private void runHead(String prKey) {
+        PublishTask task;
+        synchronized (this) {
+            task = queues.get(prKey).peekFirst();
+        }
+
+        if (task.cancellation.isCancelled()) {
+            skipped.incrementAndGet();
+            log.info("⏭️ Skipping write {}: {}", task.idempotencyKey, task.cancellation.getReason());
+            finishHead(prKey, false);
+            return;
+        }
+
+        task.attempts++;
+        boolean success;
+        try {
+            success = Boolean.TRUE.equals(task.write.call());
+        } catch (Exception e) {
+            log.warn("Write {} failed (attempt {}): {}", task.idempotencyKey, task.attempts, e.getMessage());
+            success = false;
+        }
+
+        if (success) {
+            completed.incrementAndGet();
+            finishHead(prKey, true);
+        } else if (task.attempts >= maxAttempts) {
+            failed.incrementAndGet();
+            log.error("❌ Giving up on write {} after {} attempts", task.idempotencyKey, task.attempts);
+            finishHead(prKey, false);
+        } else {
+            retried.incrementAndGet();
+            long delay = backoffMillis(task.attempts);
+            log.info("🔁 Retrying write {} in {} ms (attempt {} of {})",
+                    task.idempotencyKey, delay, task.attempts + 1, maxAttempts);
+            dispatch(prKey, delay);
+        }
+    }
+
+    /**
+     * Remove the oldest write of a pull request and start the next one, if any
+     */
+    private void finishHead(String prKey, boolean succeeded) {
+        CompletableFuture<Void> drained = null;
+        boolean more;
+        synchronized (this) {
+            Deque<PublishTask> queue = queues.get(prKey);
+            PublishTask task = queue.removeFirst();
+            pendingKeys.remove(task.idempotencyKey);
+            if (succeeded) {
+                completedKeys.add(task.idempotencyKey);
+            }
+            if (--pending == 0) {
+                notifyAll();
+            }
+
+            more = !queue.isEmpty();
+            if (!more) {
+                queues.remove(prKey);
+                running.remove(prKey);
+                drained = drainWaiters.remove(prKey);
+            }
+        }
+
+        if (more) {
+            dispatch(prKey, 0);
+        } else if (drained != null) {
+            drained.complete(null);
+        }
+    }
+
+    /**
+     * Full jitter: uniform in [0, min(max, initial * 2^(attempt-1))]
+     */
+    long backoffMillis(int attempt) {
+        long ceiling = initialBackoffMillis << Math.min(attempt - 1, 20);
+        return ThreadLocalRandom.current().nextLong(Math.min(ceiling, maxBackoffMillis) + 1);
+    }
+
+    /**
+     * A queued write; attempts is only touched by the worker running it
+     */
+    private static final class PublishTask {
+
+        private final String idempotencyKey;
+        private final Callable<Boolean> write;
+        private final CancellationToken cancellation;
+        private int attempts;
+
+        private PublishTask(String idempotencyKey, Callable<Boolean> write, CancellationToken cancellation) {
+            this.idempotencyKey = idempotencyKey;
+            this.write = write;
+            this.cancellation = cancellation;
+        }
+    }
+}
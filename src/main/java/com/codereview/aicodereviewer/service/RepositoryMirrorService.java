@@ -0,0 +1,414 @@
+package com.codereview.aicodereviewer.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.transport.CredentialsProvider;
+import org.eclipse.jgit.transport.RefSpec;
+import org.eclipse.jgit.transport.UsernamePasswordCredentialsProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Optional content backend: a local bare mirror per repository, read with JGit
+ *
+ * A mirror is cloned on first use and fetched incrementally when a review needs a head
+ * commit it does not have yet (i.e. after a push / synchronize event). File contents are
+ * then read locally instead of through the REST API. Mirrors live under dir/owner/repo.git;
+ * when their total size exceeds the quota, whole mirrors are evicted least recently used first.
+ */
+@Service
+@Slf4j
+public class RepositoryMirrorService {
+
+    // Directory name prefix of evicted mirrors waiting to be deleted
+    private static final String EVICTED_PREFIX = ".evicted-";
+
+    private final boolean enabled;
+    private final Path directory;
+    private final long maxBytes;
+    private final String remoteUrlTemplate;
+    private final String personalAccessToken;
+
+    // "owner/repo" -> mirror, access-ordered so iteration starts at the least recently used mirror
+    private final LinkedHashMap<String, Mirror> mirrors = new LinkedHashMap<>(16, 0.75f, true);
+
+    // Metrics
+    private final AtomicLong clones = new AtomicLong();
+    private final AtomicLong fetches = new AtomicLong();
+    private final AtomicLong upToDate = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong blobReads = new AtomicLong();
+
+    public RepositoryMirrorService(@Value("${review.mirror.enabled:false}") boolean enabled,
+                                   @Value("${review.mirror.dir:data/mirrors}") String directory,
+                                   @Value("${review.mirror.max-bytes:2147483648}") long maxBytes,
+                                   @Value("${review.mirror.remote-url-template:https://github.com/%s/%s.git}") String remoteUrlTemplate,
+                                   @Value("${github.token:}") String personalAccessToken) {
+        this.enabled = enabled;
+        this.directory = Paths.get(directory);
+        this.maxBytes = maxBytes;
+        this.remoteUrlTemplate = remoteUrlTemplate;
+        this.personalAccessToken = personalAccessToken;
+
+        if (!enabled) {
+            return;
+        }
+
+        try {
+            Files.createDirectories(this.directory);
+            loadMirrors();
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot open mirror directory " + this.directory, e);
+        }
+
+        log.info("🪞 Repository mirrors enabled: {} mirrors in {}", mirrors.size(), this.directory);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Make sure the mirror of a repository contains a head commit, cloning or fetching as needed
+     *
+     * @param token Installation token for the fetch (null to use the PAT)
+     * @return true if the commit is available locally
+     */
+    public boolean prepare(String owner, String repo, int prNumber, String headSha, String token) {
+        if (!enabled) {
+            return false;
+        }
+
+        Mirror mirror = lockedMirrorOf(owner, repo);
+        try {
+            CredentialsProvider credentials = credentials(token);
+
+            if (mirror.repository == null) {
+                log.info("🪞 Cloning mirror of {}/{}", owner, repo);
+                // Not closed here: closing the cloned Git would close the repository we keep open
+                Git git = Git.cloneRepository()
+                        .setURI(String.format(remoteUrlTemplate, owner, repo))
+                        .setDirectory(mirror.path.toFile())
+                        .setBare(true)
+                        .setCredentialsProvider(credentials)
+                        .call();
+                mirror.repository = git.getRepository();
+                clones.incrementAndGet();
+            }
+
+            if (hasCommit(mirror.repository, headSha)) {
+                upToDate.incrementAndGet();
+            } else {
+                fetch(mirror, prNumber, credentials);
+            }
+
+            mirror.bytes = sizeOf(mirror.path);
+            boolean ready = hasCommit(mirror.repository, headSha);
+            if (!ready) {
+                log.warn("Mirror of {}/{} does not contain {} after fetch", owner, repo, headSha);
+            }
+            return ready;
+
+        } catch (GitAPIException | IOException e) {
+            failures.incrementAndGet();
+            log.error("❌ Could not update mirror of {}/{}: {}", owner, repo, e.getMessage());
+            if (mirror.repository == null) {
+                discardPartialClone(mirror);
+            }
+            return false;
+        } finally {
+            mirror.lock.writeLock().unlock();
+            evictOverQuota();
+        }
+    }
+
+    /**
+     * Read a blob from the mirror as UTF-8 text
+     *
+     * @return The content, or null if the mirror does not have it
+     */
+    public String readBlob(String owner, String repo, String blobSha) {
+        Mirror mirror = existingMirror(owner, repo);
+        if (mirror == null || blobSha == null) {
+            return null;
+        }
+
+        mirror.lock.readLock().lock();
+        try {
+            if (mirror.repository == null) {
+                return null;
+            }
+            byte[] content = mirror.repository.open(ObjectId.fromString(blobSha), Constants.OBJ_BLOB).getBytes();
+            blobReads.incrementAndGet();
+            return new String(content, StandardCharsets.UTF_8);
+        } catch (IOException | IllegalArgumentException e) {
+            log.debug("Blob {} not in mirror of {}/{}: {}", blobSha, owner, repo, e.getMessage());
+            return null;
+        } finally {
+            mirror.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Mirror sizes and fetch metrics
+     */
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("mirrors", mirrors.size());
+        stats.put("bytes", mirrors.values().stream().mapToLong(mirror -> mirror.bytes).sum());
+        stats.put("maxBytes", maxBytes);
+        stats.put("clones", clones.get());
+        stats.put("fetches", fetches.get());
+        stats.put("upToDate", upToDate.get());
+        stats.put("failures", failures.get());
+        stats.put("evictions", evictions.get());
+        stats.put("blobReads", blobReads.get());
+        return stats;
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        mirrors.values().forEach(mirror -> {
+            if (mirror.repository != null) {
+                mirror.repository.close();
+            }
+        });
+    }
+
+    private void fetch(Mirror mirror, int prNumber, CredentialsProvider credentials) throws GitAPIException {
+        try (Git git = new Git(mirror.repository)) {
+            git.fetch()
+                    .setRemote("origin")
+                    .setRefSpecs(new RefSpec("+refs/heads/*:refs/heads/*"))
+                    .setRemoveDeletedRefs(true)
+                    .setCredentialsProvider(credentials)
+                    .call();
+            fetches.incrementAndGet();
+
+            // Heads of PRs from forks only exist under refs/pull/<n>/head
+            if (prNumber > 0) {
+                String pullRef = "refs/pull/" + prNumber + "/head";
+                try {
+                    git.fetch()
+                            .setRemote("origin")
+                            .setRefSpecs(new RefSpec("+" + pullRef + ":" + pullRef))
+                            .setCredentialsProvider(credentials)
+                            .call();
+                } catch (GitAPIException e) {
+                    log.debug("No {} on remote: {}", pullRef, e.getMessage());
+                }
+            }
+        }
+    }
+
+    private CredentialsProvider credentials(String token) {
+        String secret = token != null ? token : personalAccessToken;
+        if (secret == null || secret.isEmpty()) {
+            return null;
+        }
+        return new UsernamePasswordCredentialsProvider("x-access-token", secret);
+    }
+
+    /**
+     * The mirror of a repository, write-locked; retried if it was evicted before we got the lock
+     */
+    private Mirror lockedMirrorOf(String owner, String repo) {
+        while (true) {
+            Mirror mirror;
+            synchronized (this) {
+                mirror = mirrors.computeIfAbsent(owner + "/" + repo,
+                        key -> new Mirror(directory.resolve(owner).resolve(repo + ".git")));
+            }
+
+            mirror.lock.writeLock().lock();
+            if (!mirror.evicted) {
+                return mirror;
+            }
+            mirror.lock.writeLock().unlock();
+        }
+    }
+
+    private void discardPartialClone(Mirror mirror) {
+        try {
+            deleteRecursively(mirror.path);
+        } catch (IOException e) {
+            log.warn("Could not clean up {}: {}", mirror.path, e.getMessage());
+        }
+    }
+
+    private synchronized Mirror existingMirror(String owner, String repo) {
+        return enabled ? mirrors.get(owner + "/" + repo) : null;
+    }
+
+    /**
+     * Delete least recently used mirrors until the total size fits the quota
+     * Mirrors in use, and the most recently used one, are kept. Victims are picked and
+     * moved aside under the monitor; their directory trees are deleted outside it.
+     */
+    private void evictOverQuota() {
+        List<Path> evicted = new ArrayList<>();
+
+        synchronized (this) {
+            long total = mirrors.values().stream().mapToLong(mirror -> mirror.bytes).sum();
+
+            Iterator<Map.Entry<String, Mirror>> eldest = mirrors.entrySet().iterator();
+            while (total > maxBytes && mirrors.size() > 1 && eldest.hasNext()) {
+                Map.Entry<String, Mirror> entry = eldest.next();
+                Mirror mirror = entry.getValue();
+                if (!mirror.lock.writeLock().tryLock()) {
+                    continue;
+                }
+
+                try {
+                    // A rename is cheap, and frees the path for a new clone right away
+                    Path trash = directory.resolve(EVICTED_PREFIX + UUID.randomUUID());
+                    Files.move(mirror.path, trash, StandardCopyOption.ATOMIC_MOVE);
+                    evicted.add(trash);
+
+                    if (mirror.repository != null) {
+                        mirror.repository.close();
+                        mirror.repository = null;
+                    }
+                    mirror.evicted = true;
+                    total -= mirror.bytes;
+                    eldest.remove();
+                    evictions.incrementAndGet();
+                    log.info("🧹 Evicted mirror of {} ({} bytes)", entry.getKey(), mirror.bytes);
+                } catch (IOException e) {
+                    log.warn("Could not move mirror {} aside: {}", mirror.path, e.getMessage());
+                } finally {
+                    mirror.lock.writeLock().unlock();
+                }
+            }
+        }
+
+        evicted.forEach(this::deleteEvicted);
+    }
+
+    private void deleteEvicted(Path trash) {
+        try {
+            deleteRecursively(trash);
+        } catch (IOException e) {
+            log.warn("Could not delete evicted mirror {}: {}", trash, e.getMessage());
+        }
+    }
+
+    /**
+     * Open existing mirrors, least recently modified first
+     */
+    private void loadMirrors() throws IOException {
+        // Evicted mirrors whose deletion was cut short
+        try (Stream<Path> paths = Files.list(directory)) {
+            paths.filter(path -> path.getFileName().toString().startsWith(EVICTED_PREFIX))
+                    .toList()
+                    .forEach(this::deleteEvicted);
+        }
+
+        List<Path> found;
+        try (Stream<Path> paths = Files.walk(directory, 2)) {
+            found = paths.filter(path -> directory.relativize(path).getNameCount() == 2)
+                    .filter(path -> path.getFileName().toString().endsWith(".git"))
+                    .sorted(Comparator.comparingLong(RepositoryMirrorService::lastModified))
+                    .toList();
+        }
+
+        for (Path path : found) {
+            String repoDir = path.getFileName().toString();
+            String key = path.getParent().getFileName() + "/" + repoDir.substring(0, repoDir.length() - 4);
+
+            Mirror mirror = new Mirror(path);
+            try {
+                mirror.repository = new FileRepositoryBuilder().setGitDir(path.toFile()).setMustExist(true).build();
+                mirror.bytes = sizeOf(path);
+                mirrors.put(key, mirror);
+            } catch (IOException e) {
+                log.warn("Dropping unreadable mirror {}: {}", path, e.getMessage());
+                deleteRecursively(path);
+            }
+        }
+        evictOverQuota();
+    }
+
+    private static boolean hasCommit(Repository repository, String sha) throws IOException {
+        return sha != null && repository.getObjectDatabase().has(ObjectId.fromString(sha));
+    }
+
+    /**
+     * Total size of the files under a path
+     * JGit's background gc creates and removes lock files meanwhile, so vanished files are skipped
+     */
+    private static long sizeOf(Path path) throws IOException {
+        long[] total = {0};
+        Files.walkFileTree(path, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                total[0] += attributes.size();
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) throws IOException {
+                if (e instanceof NoSuchFileException) {
+                    return FileVisitResult.CONTINUE;
+                }
+                throw e;
+            }
+        });
+        return total[0];
+    }
+
+    private static long lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static void deleteRecursively(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(path)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private static class Mirror {
+        private final Path path;
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        private volatile Repository repository;
+        private volatile long bytes;
+        private boolean evicted;  // guarded by the write lock
+
+        Mirror(Path path) {
+            this.path = path;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.codereview.aicodereviewer.service;
+
+/**
+ * Thrown when a review stops because its cancellation token was cancelled
+ */
+public class ReviewCancelledException extends RuntimeException {
+
+    public ReviewCancelledException(String reason) {
+        super(reason);
+    }
+}
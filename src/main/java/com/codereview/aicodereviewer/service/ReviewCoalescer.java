@@ -0,0 +1,223 @@
+package com.codereview.aicodereviewer.service;
+
+import com.codereview.aicodereviewer.model.PullRequestEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collapses bursts of events for the same pull request into one review
+ *
+ * "synchronize" events wait for a short debounce window; a newer push inside the
+ * window replaces the waiting one. Any queued or running review whose head SHA has
+ * been superseded is cancelled through its CancellationToken. A pull request is
+ * tracked only until its latest review finishes. A debounced event the scheduler has no
+ * room for when its window closes was acknowledged long ago, so it is retried with backoff.
+ * Every event that is dropped here is marked completed in the webhook journal; a
+ * REJECTED event is left pending, for the caller to decide whether it is retried.
+ */
+@Service
+@Slf4j
+public class ReviewCoalescer {
+
+    public enum Outcome {
+        /** Handed to the scheduler */
+        QUEUED,
+        /** Waiting for the debounce window to close */
+        DEBOUNCED,
+        /** Same head SHA is already being reviewed */
+        DUPLICATE,
+        /** Scheduler is full; the event is still pending in the journal */
+        REJECTED
+    }
+
+    // Longest wait between dispatch attempts of a debounced event the scheduler rejected
+    private static final long MAX_RETRY_MILLIS = 300_000;
+
+    private final ReviewScheduler reviewScheduler;
+    private final WebhookJournal webhookJournal;
+    private final long debounceMillis;
+    private final ScheduledExecutorService debounceTimer =
+            Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("review-debounce-"));
+
+    // Latest unfinished review per pull request, keyed by PullRequestEvent.prKey()
+    private final Map<String, TrackedReview> latest = new HashMap<>();
+
+    // Metrics
+    private final AtomicLong debounced = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong cancelled = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicLong dispatchRetries = new AtomicLong();
+
+    public ReviewCoalescer(ReviewScheduler reviewScheduler,
+                           WebhookJournal webhookJournal,
+                           @Value("${review.coalesce.debounce-ms:10000}") long debounceMillis) {
+        this.reviewScheduler = reviewScheduler;
+        this.webhookJournal = webhookJournal;
+        this.debounceMillis = debounceMillis;
+    }
+
+    /**
+     * Offer an accepted event for review
+     *
+     * @param event The pull request event
+     * @return What happened to the event
+     */
+    public synchronized Outcome offer(PullRequestEvent event) {
+        String key = event.prKey();
+        TrackedReview previous = latest.get(key);
+
+        if (previous != null && previous.event.getHeadSha().equals(event.getHeadSha())
+                && !previous.cancellation.isCancelled()) {
+            duplicates.incrementAndGet();
+            log.info("Review for {} at {} already queued or running, ignoring event", key, event.getHeadSha());
+            webhookJournal.markCompleted(event);
+            return Outcome.DUPLICATE;
+        }
+
+        if (!reviewScheduler.hasCapacity(event.getInstallationId())) {
+            return Outcome.REJECTED;
+        }
+
+        if (previous != null) {
+            supersede(previous, "superseded by " + event.getHeadSha());
+        }
+
+        TrackedReview review = new TrackedReview(event);
+        latest.put(key, review);
+
+        if (debounceMillis > 0 && "synchronize".equals(event.getAction())) {
+            debounced.incrementAndGet();
+            review.pendingDispatch = debounceTimer.schedule(() -> dispatchDebounced(review), debounceMillis, TimeUnit.MILLISECONDS);
+            log.info("Debouncing review for {} for {} ms", key, debounceMillis);
+            return Outcome.DEBOUNCED;
+        }
+
+        if (!dispatch(review)) {
+            latest.remove(key, review);
+            return Outcome.REJECTED;
+        }
+        return Outcome.QUEUED;
+    }
+
+    /**
+     * Forget a pull request (e.g. it was closed) and cancel its review
+     */
+    public synchronized void forget(PullRequestEvent event) {
+        TrackedReview previous = latest.remove(event.prKey());
+        if (previous != null) {
+            supersede(previous, "pull request " + event.getAction());
+        }
+    }
+
+    /**
+     * Current coalescing metrics
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (this) {
+            stats.put("trackedPullRequests", latest.size());
+        }
+        stats.put("debounced", debounced.get());
+        stats.put("coalesced", coalesced.get());
+        stats.put("supersededAfterDispatch", cancelled.get());
+        stats.put("duplicates", duplicates.get());
+        stats.put("dispatchRetries", dispatchRetries.get());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Debounced events that never ran stay in the journal and are replayed
+        debounceTimer.shutdownNow();
+    }
+
+    /**
+     * Hand a review to the scheduler
+     *
+     * @return false if it was superseded meanwhile or the scheduler is full
+     */
+    private synchronized boolean dispatch(TrackedReview review) {
+        review.pendingDispatch = null;
+        if (review.cancellation.isCancelled()) {
+            // Superseded while the timer was firing
+            webhookJournal.markCompleted(review.event);
+            return false;
+        }
+
+        return reviewScheduler.submit(review.event, review.cancellation, () -> finished(review));
+    }
+
+    /**
+     * Dispatch a review whose debounce window closed
+     * GitHub will not redeliver it, so while the scheduler is full it stays tracked and
+     * journaled and is tried again with exponential backoff
+     */
+    private synchronized void dispatchDebounced(TrackedReview review) {
+        if (dispatch(review) || review.cancellation.isCancelled()) {
+            return;
+        }
+
+        long delay = Math.min(MAX_RETRY_MILLIS, debounceMillis << Math.min(review.attempts++, 16));
+        dispatchRetries.incrementAndGet();
+        log.warn("⚠️ Review queue full, retrying review for {} at {} in {} ms",
+                review.event.prKey(), review.event.getHeadSha(), delay);
+        try {
+            review.pendingDispatch = debounceTimer.schedule(() -> dispatchDebounced(review), delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Shutting down; the event stays in the journal and is replayed
+            log.debug("Debounce timer stopped, not retrying {}", review.event.prKey());
+        }
+    }
+
+    /**
+     * Stop tracking a pull request once its latest review is done
+     */
+    private synchronized void finished(TrackedReview review) {
+        latest.remove(review.event.prKey(), review);
+    }
+
+    private void supersede(TrackedReview previous, String reason) {
+        previous.cancellation.cancel(reason);
+
+        ScheduledFuture<?> pendingDispatch = previous.pendingDispatch;
+        if (pendingDispatch != null && pendingDispatch.cancel(false)) {
+            // Never reached the scheduler, drop it here
+            coalesced.incrementAndGet();
+            webhookJournal.markCompleted(previous.event);
+            log.info("Coalesced review for {} at {} ({})", previous.event.prKey(), previous.event.getHeadSha(), reason);
+        } else {
+            // Queued or running: the scheduler finishes it and marks it completed
+            cancelled.incrementAndGet();
+            log.info("Cancelling review for {} at {} ({})", previous.event.prKey(), previous.event.getHeadSha(), reason);
+        }
+    }
+
+    /**
+     * The latest event seen for a pull request and the token of its review
+     */
+    private static class TrackedReview {
+
+        private final PullRequestEvent event;
+        private final CancellationToken cancellation = new CancellationToken();
+        private ScheduledFuture<?> pendingDispatch;
+        private int attempts;
+
+        TrackedReview(PullRequestEvent event) {
+            this.event = event;
+        }
+    }
+}
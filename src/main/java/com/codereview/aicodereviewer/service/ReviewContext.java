@@ -0,0 +1,151 @@
+package com.codereview.aicodereviewer.service;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.function.Supplier;
+
+/**
+ * Immutable context of one running review: the pull request, the credential to call
+ * GitHub with, the deadline and the cancellation flag
+ *
+ * The review passes it explicitly to its own steps. GitHub clients read the credential
+ * from {@link #current()}, which is bound for the duration of {@link #run} or a
+ * {@link #wrap wrapped} task; executors doing review work wrap their tasks with
+ * {@link #propagate} so the context follows the work onto other threads.
+ *
+ * The credential is read from the token cache on every request rather than captured once,
+ * so a review that outlives its first installation token switches to the renewed one.
+ *
+ * @param installationId GitHub App installation, or null to use the PAT
+ * @param installationTokens Current token of the installation, or null to use the PAT
+ * @param deadline When the review gives up, or null for no limit
+ */
+public record ReviewContext(String owner, String repo, int prNumber, String headSha,
+                            Long installationId, Supplier<String> installationTokens,
+                            Instant deadline, CancellationToken cancellation) {
+
+    private static final ThreadLocal<ReviewContext> CURRENT = new ThreadLocal<>();
+
+    public ReviewContext {
+        if (cancellation == null) {
+            cancellation = CancellationToken.NONE;
+        }
+    }
+
+    /**
+     * Context bound to the calling thread, if it is doing work for a review
+     */
+    public static Optional<ReviewContext> current() {
+        return Optional.ofNullable(CURRENT.get());
+    }
+
+    /**
+     * Installation token of the review bound to the calling thread, or null
+     */
+    public static String currentInstallationToken() {
+        ReviewContext context = CURRENT.get();
+        return context != null ? context.installationToken() : null;
+    }
+
+    /**
+     * Whether the review bound to the calling thread authenticates as a GitHub App installation
+     */
+    public static boolean currentUsesInstallation() {
+        ReviewContext context = CURRENT.get();
+        return context != null && context.installationTokens != null;
+    }
+
+    /**
+     * Installation token to send with the next request, or null to use the PAT
+     */
+    public String installationToken() {
+        return installationTokens != null ? installationTokens.get() : null;
+    }
+
+    /**
+     * Pull request key ("owner/repo#number") the publish queue orders writes by
+     */
+    public String prKey() {
+        return owner + "/" + repo + "#" + prNumber;
+    }
+
+    /**
+     * Same review without deadline or cancellation, for writes that must land even
+     * after the review stopped (e.g. completing its check run)
+     */
+    public ReviewContext detached() {
+        return new ReviewContext(owner, repo, prNumber, headSha, installationId, installationTokens,
+                null, CancellationToken.NONE);
+    }
+
+    public boolean isExpired() {
+        return deadline != null && Instant.now().isAfter(deadline);
+    }
+
+    /**
+     * Stop the review if it was cancelled or ran past its deadline
+     *
+     * @throws ReviewCancelledException if so
+     */
+    public void throwIfCancelled() {
+        cancellation.throwIfCancelled();
+        if (isExpired()) {
+            throw new ReviewCancelledException("deadline exceeded");
+        }
+    }
+
+    /**
+     * Run a task with this context bound to the calling thread
+     */
+    public void run(Runnable task) {
+        call(() -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * Compute a result with this context bound to the calling thread
+     */
+    public <T> T call(Supplier<T> task) {
+        ReviewContext previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return task.get();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    /**
+     * Task that runs with this context bound to whichever thread executes it
+     */
+    public <T> Callable<T> wrap(Callable<T> task) {
+        return () -> {
+            ReviewContext previous = CURRENT.get();
+            CURRENT.set(this);
+            try {
+                return task.call();
+            } finally {
+                restore(previous);
+            }
+        };
+    }
+
+    /**
+     * Carry the calling thread's context, if any, over to the thread that runs the task
+     */
+    public static Runnable propagate(Runnable task) {
+        ReviewContext context = CURRENT.get();
+        return context != null ? () -> context.run(task) : task;
+    }
+
+    private static void restore(ReviewContext previous) {
+        if (previous != null) {
+            CURRENT.set(previous);
+        } else {
+            CURRENT.remove();
+        }
+    }
+}
@@ -1,14 +1,29 @@
 package com.codereview.aicodereviewer.service;
 
+import com.codereview.aicodereviewer.model.ChangedFile;
+import com.codereview.aicodereviewer.model.ChangedLineIndex;
 import com.codereview.aicodereviewer.model.CodeAnalysis;
 import com.codereview.aicodereviewer.model.CodeIssue;
+import com.codereview.aicodereviewer.model.OutputChannel;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
 
 /**
  * Orchestrates the entire code review workflow
@@ -24,6 +39,51 @@ public class ReviewOrchestrator {
     private final AIReviewService aiReviewService;
     private final GitHubCommentService commentService;
     private final GitHubAppAuthService gitHubAppAuthService;
+    private final RepositoryMirrorService repositoryMirror;
+    private final IssueFingerprinter issueFingerprinter;
+    private final PublishQueue publishQueue;
+
+    // Threads shared by all reviews for per-file work
+    @Value("${review.file-workers:8}")
+    private int fileWorkers;
+
+    // Max files of one PR reviewed at the same time
+    @Value("${review.file-parallelism:4}")
+    private int fileParallelism;
+
+    // Java files per PR fetched one by one; the rest come from a single tarball (0 = never)
+    @Value("${review.tarball-threshold-files:50}")
+    private int tarballThresholdFiles;
+
+    // Issues up to this many lines from a changed line are moved onto it (0 = exact lines only)
+    @Value("${review.line-snap-distance:2}")
+    private int lineSnapDistance;
+
+    // Reviews running longer than this are stopped like a cancelled review (0 = no limit)
+    @Value("${review.deadline-seconds:900}")
+    private long reviewDeadlineSeconds;
+
+    private ExecutorService fileReviewExecutor;
+
+    @PostConstruct
+    void startFileReviewExecutor() {
+        // Tasks run with the review context of the thread that submitted them
+        int workers = Math.max(1, fileWorkers);
+        fileReviewExecutor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), new CustomizableThreadFactory("file-review-")) {
+            @Override
+            public void execute(Runnable command) {
+                super.execute(ReviewContext.propagate(command));
+            }
+        };
+        fileParallelism = Math.max(1, fileParallelism);
+        log.info("🧵 File review pool started: {} workers, {} files per PR", fileWorkers, fileParallelism);
+    }
+
+    @PreDestroy
+    void stopFileReviewExecutor() {
+        fileReviewExecutor.shutdownNow();
+    }
 
     /**
      * Process a pull request: fetch files, review them, post comments
@@ -110,14 +170,33 @@ public class ReviewOrchestrator {
      * @param installationId GitHub App installation ID (null for PAT mode)
      */
     public void processPullRequest(String owner, String repo, int prNumber, String headSha, Long installationId) {
+        processPullRequest(owner, repo, prNumber, headSha, installationId, CancellationToken.NONE);
+    }
+
+    /**
+     * Process a pull request, stopping early once the cancellation token is cancelled
+     * (e.g. a newer push superseded this head SHA) or the review deadline passes
+     *
+     * @param cancellation Checked between files and before each AI or GitHub call
+     * @return true if the review ran to the end and its results were queued for publishing,
+     *         false if it was skipped, cancelled or failed
+     */
+    public boolean processPullRequest(String owner, String repo, int prNumber, String headSha,
+                                      Long installationId, CancellationToken cancellation) {
         log.info("🚀 Starting review for PR #{} in {}/{}", prNumber, owner, repo);
 
-        String installationToken = null;
+        Supplier<String> installationTokens = null;
+        if (cancellation.isCancelled()) {
+            log.info("⏭️ Skipping review for PR #{} at {}: {}", prNumber, headSha, cancellation.getReason());
+            return false;
+        }
+
         if (installationId != null) {
             try {
-                installationToken = gitHubAppAuthService.getInstallationToken(installationId);
-                gitHubService.setInstallationToken(installationToken);
-                commentService.setInstallationToken(installationToken);
+                // Fails over to the PAT now if the app cannot authenticate; later requests
+                // take whatever token the cache holds then
+                gitHubAppAuthService.getInstallationToken(installationId);
+                installationTokens = () -> gitHubAppAuthService.getInstallationToken(installationId);
                 log.info("🔐 Using GitHub App authentication (Installation ID: {})", installationId);
             } catch (Exception e) {
                 log.error("Failed to get installation token, falling back to PAT: {}", e.getMessage());
@@ -126,83 +205,113 @@ public class ReviewOrchestrator {
             log.info("🔐 Using Personal Access Token authentication");
         }
 
+        Instant deadline = reviewDeadlineSeconds > 0 ? Instant.now().plusSeconds(reviewDeadlineSeconds) : null;
+        ReviewContext context = new ReviewContext(owner, repo, prNumber, headSha,
+                installationTokens != null ? installationId : null, installationTokens, deadline, cancellation);
+        return context.call(() -> review(context));
+    }
+
+    /**
+     * Completes once every GitHub write queued so far for a pull request has finished,
+     * successfully or not. Writes of one PR run in order, so this covers a review's
+     * annotations, summary and check run completion once its processPullRequest returned.
+     */
+    public CompletableFuture<Void> whenPublished(String owner, String repo, int prNumber) {
+        return publishQueue.whenDrained(owner + "/" + repo + "#" + prNumber);
+    }
+
+    /**
+     * Review a pull request with the context bound to the calling thread
+     *
+     * @return true if the review ran to the end
+     */
+    private boolean review(ReviewContext context) {
+        String owner = context.owner();
+        String repo = context.repo();
+        int prNumber = context.prNumber();
+        String headSha = context.headSha();
+
+        OutputChannel channel = commentService.outputChannelOf(owner, repo);
+        GitHubCommentService.CheckRun checkRun = null;
+
         try {
-            // Step 1: Fetch changed files
-            List<Map<String, Object>> allFiles = gitHubService.getChangedFiles(owner, repo, prNumber);
-            List<Map<String, Object>> javaFiles = gitHubService.filterJavaFiles(allFiles);
+            // Check-run output: annotations are added as each file finishes
+            if (channel.usesChecks()) {
+                checkRun = commentService.startCheckRun(owner, repo, headSha);
+                if (checkRun == null && !channel.usesComments()) {
+                    log.warn("⚠️ No check run for PR #{}, falling back to review comments", prNumber);
+                    channel = OutputChannel.COMMENTS;
+                }
+            }
 
-            if (javaFiles.isEmpty()) {
+            // Step 1: Stream changed files page by page; Java files are reviewed (at most
+            // fileParallelism at a time) as soon as their page arrives
+            // With the optional local mirror, file contents are read from it instead of the API
+            boolean mirrored = repositoryMirror.prepare(owner, repo, prNumber, headSha, context.installationToken());
+
+            ReviewedFiles reviewed = reviewFiles(context, mirrored, checkRun);
+            List<FileReviewResult> results = reviewed.results();
+
+            if (results.isEmpty()) {
                 log.info("No Java files changed in this PR");
-                commentService.postReviewComment(owner, repo, prNumber,
-                        "✅ No Java files to review in this PR.");
-                return;
+                context.throwIfCancelled();
+                String message = "✅ No Java files to review in this PR.";
+                if (channel.usesComments()) {
+                    publish(context, "review:" + headSha,
+                            () -> commentService.publishReview(owner, repo, prNumber, headSha,
+                                    message, List.of(), Set.of()).isComplete());
+                }
+                if (checkRun != null) {
+                    GitHubCommentService.CheckRun run = checkRun;
+                    publish(context.detached(), "check:" + run.getId(),
+                            () -> commentService.completeCheckRun(run, List.of(), message));
+                }
+                return true;
             }
 
-            log.info("Found {} Java files to review", javaFiles.size());
+            log.info("Reviewed {} Java files of {} changed", results.size(), reviewed.listedFiles());
 
-            // Counters for summary
+            // Step 2: Build the summary from the per-file results, in file order
+            String findingsWhere = channel.usesComments() ? "inline comments above" : "annotations of the check run";
             int totalIssues = 0;
             int totalNewIssues = 0;
+            List<CodeIssue> inlineIssues = new ArrayList<>();
+            Set<String> reviewedFiles = new HashSet<>();
             StringBuilder summaryBuilder = new StringBuilder();
             summaryBuilder.append("## Code Review Summary\n\n");
 
-            // Step 2: Review each Java file
-            for (Map<String, Object> file : javaFiles) {
-                String filename = (String) file.get("filename");
-                log.info("Reviewing file: {}", filename);
-
-                // Get file content
-                String content = gitHubService.getFileContent(owner, repo, filename, headSha);
-                if (content == null || content.isEmpty()) {
-                    log.warn("Could not fetch content for {}", filename);
+            for (FileReviewResult result : results) {
+                if (result.skipped()) {
                     continue;
                 }
 
-                // Get changed lines
-                List<Integer> changedLines = gitHubService.getChangedLines(owner, repo, prNumber, filename);
-                log.info("Found {} changed lines in {}", changedLines.size(), filename);
-
-                // Get AI review with line numbers
-                List<CodeIssue> allIssues = aiReviewService.reviewCodeWithMLAndAI(content, filename);
-                log.info("AI found {} total issues in {}", allIssues.size(), filename);
-
-                // Filter to only issues on changed lines
-                List<CodeIssue> newIssues = allIssues.stream()
-                        .filter(issue -> changedLines.contains(issue.getLineNumber()))
-                        .collect(Collectors.toList());
-
-                log.info("Filtered to {} issues on changed lines", newIssues.size());
-
-                // Post inline comments for new issues
-                if (!newIssues.isEmpty()) {
-                    int posted = commentService.postInlineComments(owner, repo, prNumber, headSha, newIssues);
-                    log.info("Posted {} inline comments for {}", posted, filename);
-                }
+                summaryBuilder.append(String.format("### %s\n\n", result.filename()));
 
-                try {
-                    Thread.sleep(2000); // Wait 2 seconds before summary
-                } catch (InterruptedException e) {
-                    // Ignore interruption
+                if (result.failed()) {
+                    summaryBuilder.append("❌ Review failed for this file.\n\n");
+                    summaryBuilder.append("---\n\n");
+                    continue;
                 }
 
                 // Update counters
-                totalIssues += allIssues.size();
-                totalNewIssues += newIssues.size();
+                totalIssues += result.totalIssues();
+                totalNewIssues += result.newIssues();
+                inlineIssues.addAll(result.issues());
+                reviewedFiles.add(result.filename());
 
                 // Add to summary - CLEAN VERSION
-                summaryBuilder.append(String.format("### %s\n\n", filename));
-                summaryBuilder.append(String.format("- Lines reviewed: %d\n", changedLines.size()));
+                summaryBuilder.append(String.format("- Lines reviewed: %d\n", result.changedLines()));
                 summaryBuilder.append(String.format("- Issues found: %d total (%d in changed code)\n\n",
-                        allIssues.size(), newIssues.size()));
+                        result.totalIssues(), result.newIssues()));
 
-                if (newIssues.isEmpty()) {
+                if (result.newIssues() == 0) {
                     summaryBuilder.append("No issues found in changed code.\n\n");
                 } else {
-                    summaryBuilder.append(String.format("⚠️ **Action required:** Please review the **%d** inline comments above.\n\n", totalNewIssues));
+                    summaryBuilder.append(String.format("⚠️ **Action required:** Please review the **%d** %s.\n\n", result.newIssues(), findingsWhere));
                 }
 
                 // Mention old issues if any
-                int oldIssues = allIssues.size() - newIssues.size();
+                int oldIssues = result.totalIssues() - result.newIssues();
                 if (oldIssues > 0) {
                     summaryBuilder.append(String.format("*%d pre-existing issues in unchanged code*\n\n", oldIssues));
                 }
@@ -210,9 +319,9 @@ public class ReviewOrchestrator {
                 summaryBuilder.append("---\n\n");
             }
 
-            // Step 3: Post summary comment - CLEAN VERSION
+            // Step 3: Overall totals
             summaryBuilder.append("### Overall\n\n");
-            summaryBuilder.append(String.format("- Files reviewed: %d\n", javaFiles.size()));
+            summaryBuilder.append(String.format("- Files reviewed: %d\n", results.size()));
             summaryBuilder.append(String.format("- Total issues: %d\n", totalIssues));
             summaryBuilder.append(String.format("- New issues: %d\n", totalNewIssues));
             summaryBuilder.append(String.format("- Pre-existing: %d\n\n", totalIssues - totalNewIssues));
@@ -220,36 +329,247 @@ public class ReviewOrchestrator {
             if (totalNewIssues == 0) {
                 summaryBuilder.append("**All clear!** No new issues found.\n\n");
             } else {
-                summaryBuilder.append(String.format("**Action required:** Please review the %d inline comments above.\n\n", totalNewIssues));
+                summaryBuilder.append(String.format("**Action required:** Please review the %d %s.\n\n", totalNewIssues, findingsWhere));
             }
 
             summaryBuilder.append("---\n");
             summaryBuilder.append("*Automated code review*");
 
-            boolean posted = commentService.postReviewComment(owner, repo, prNumber, summaryBuilder.toString());
-
-            if (posted) {
-                log.info("✅ Review completed successfully!");
-            } else {
-                log.error("❌ Failed to post summary comment");
+            // Step 4: Post only new findings, minimize outdated ones and update the summary in place,
+            // and/or complete the check run with the summary; both run on the publish queue after
+            // the annotations queued by the file reviews
+            context.throwIfCancelled();
+            String summary = summaryBuilder.toString();
+            if (channel.usesComments()) {
+                publish(context, "review:" + headSha,
+                        () -> commentService.publishReview(owner, repo, prNumber, headSha,
+                                summary, inlineIssues, reviewedFiles).isComplete());
+            }
+            if (checkRun != null) {
+                GitHubCommentService.CheckRun run = checkRun;
+                publish(context.detached(), "check:" + run.getId(),
+                        () -> commentService.completeCheckRun(run, inlineIssues, summary));
             }
 
+            log.info("✅ Review completed, results queued for publishing");
+            return true;
+        } catch (ReviewCancelledException e) {
+            log.info("⏹️ Review for PR #{} at {} cancelled: {}", prNumber, headSha, e.getMessage());
+            if (checkRun != null) {
+                GitHubCommentService.CheckRun run = checkRun;
+                String conclusion = context.isExpired() ? "timed_out" : "cancelled";
+                publish(context.detached(), "check:" + run.getId(),
+                        () -> commentService.abortCheckRun(run, conclusion, "Review cancelled: " + e.getMessage()));
+            }
+            return false;
         } catch (Exception e) {
             log.error("Error processing PR: {}", e.getMessage(), e);
+            String message = "❌ Error during code review: " + e.getMessage();
+
+            if (checkRun != null) {
+                GitHubCommentService.CheckRun run = checkRun;
+                publish(context.detached(), "check:" + run.getId(),
+                        () -> commentService.abortCheckRun(run, "neutral", message));
+            }
 
             // Try to post error comment
+            if (channel.usesComments()) {
+                publish(context.detached(), "error:" + headSha,
+                        () -> commentService.postReviewComment(owner, repo, prNumber, message));
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Review the Java files of a PR concurrently on the shared file-review executor
+     * Files are submitted as each page of the file listing arrives; at most
+     * fileParallelism files of this PR are in flight at once. Java files beyond
+     * tarballThresholdFiles are held back and their contents read from a single
+     * tarball download once the listing is complete.
+     *
+     * @param mirrored Whether the local mirror has the head commit (no tarball needed then)
+     * @param checkRun Check run that receives each file's annotations, or null
+     * @return One result per Java file, in listing order, and the number of files listed
+     */
+    private ReviewedFiles reviewFiles(ReviewContext context, boolean mirrored,
+                                      GitHubCommentService.CheckRun checkRun) {
+        Semaphore permits = new Semaphore(fileParallelism);
+        AtomicInteger listedFiles = new AtomicInteger();
+        List<Future<FileReviewResult>> futures = new ArrayList<>();
+        List<ChangedFile> deferred = new ArrayList<>();
+
+        BiConsumer<ChangedFile, String> submit = (file, preloadedContent) -> {
+            context.throwIfCancelled();
             try {
-                commentService.postReviewComment(owner, repo, prNumber,
-                        "❌ Error during code review: " + e.getMessage());
-            } catch (Exception ex) {
-                log.error("Could not post error comment", ex);
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ReviewCancelledException("interrupted");
+            }
+
+            try {
+                futures.add(fileReviewExecutor.submit(() -> {
+                    try {
+                        return reviewFile(context, file, mirrored, preloadedContent, checkRun);
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            } catch (RejectedExecutionException e) {
+                permits.release();
+                throw e;
+            }
+        };
+
+        try {
+            gitHubService.forEachChangedFilesPage(context.owner(), context.repo(), context.prNumber(), page -> {
+                listedFiles.addAndGet(page.size());
+
+                for (ChangedFile file : page) {
+                    if (!file.isJava()) {
+                        continue;
+                    }
+                    if (!mirrored && tarballThresholdFiles > 0 && futures.size() >= tarballThresholdFiles) {
+                        deferred.add(file);
+                    } else {
+                        submit.accept(file, null);
+                    }
+                }
+            });
+
+            if (!deferred.isEmpty()) {
+                // Large PR: one streamed tarball instead of a request per remaining file
+                context.throwIfCancelled();
+                Map<String, String> blobShas = new HashMap<>();
+                for (ChangedFile file : deferred) {
+                    if (!"removed".equals(file.getStatus())) {
+                        blobShas.put(file.getFilename(), file.getBlobSha());
+                    }
+                }
+                Map<String, String> contents = gitHubService.getContentsFromTarball(
+                        context.owner(), context.repo(), context.headSha(), blobShas);
+
+                for (ChangedFile file : deferred) {
+                    submit.accept(file, contents.get(file.getFilename()));
+                }
+            }
+
+            List<FileReviewResult> results = new ArrayList<>();
+            for (Future<FileReviewResult> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof ReviewCancelledException cancelled) {
+                        throw cancelled;
+                    }
+                    throw new IllegalStateException("File review failed", e.getCause());
+                }
             }
+            return new ReviewedFiles(listedFiles.get(), results);
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ReviewCancelledException("interrupted");
         } finally {
-            // IMPORTANT: Clean up tokens
-            if (installationToken != null) {
-                gitHubService.clearInstallationToken();
-                commentService.clearInstallationToken();
+            // Stop files that have not started yet if we bail out early
+            futures.forEach(future -> future.cancel(false));
+        }
+    }
+
+    /**
+     * Review a single file: fetch, analyze, collect the issues on changed lines
+     * Failures are isolated to the file and reported in its result
+     */
+    private FileReviewResult reviewFile(ReviewContext context, ChangedFile file, boolean mirrored,
+                                        String preloadedContent, GitHubCommentService.CheckRun checkRun) {
+        String owner = context.owner();
+        String repo = context.repo();
+        String filename = file.getFilename();
+
+        try {
+            context.throwIfCancelled();
+            log.info("Reviewing file: {}", filename);
+
+            if ("removed".equals(file.getStatus())) {
+                log.info("Skipping removed file: {}", filename);
+                return FileReviewResult.skipped(filename);
+            }
+
+            // Get file content: preloaded from the tarball, else from the local mirror,
+            // else by blob SHA (immutable, cached locally), else by path
+            String content = preloadedContent;
+            if (content == null && mirrored) {
+                content = repositoryMirror.readBlob(owner, repo, file.getBlobSha());
+            }
+            if (content == null && file.getBlobSha() != null) {
+                content = gitHubService.getBlobContent(owner, repo, file.getBlobSha());
+            } else if (content == null) {
+                content = gitHubService.getFileContent(owner, repo, filename, context.headSha());
+            }
+            if (content == null || content.isEmpty()) {
+                log.warn("Could not fetch content for {}", filename);
+                return FileReviewResult.skipped(filename);
+            }
+
+            // Get changed lines from the hunks parsed with the file listing
+            ChangedLineIndex changedLines = file.getChangedLineIndex();
+            log.info("Found {} changed lines in {}", changedLines.size(), filename);
+
+            // Get AI review with line numbers
+            context.throwIfCancelled();
+            List<CodeIssue> allIssues = aiReviewService.reviewCodeWithMLAndAI(content, filename);
+            log.info("AI found {} total issues in {}", allIssues.size(), filename);
+
+            // Filter to only issues on changed lines, snapping near misses onto the closest one
+            List<CodeIssue> newIssues = new ArrayList<>();
+            int snapped = 0;
+            for (CodeIssue issue : allIssues) {
+                int line = changedLines.nearest(issue.getLineNumber(), lineSnapDistance);
+                if (line < 0) {
+                    continue;
+                }
+                if (line != issue.getLineNumber()) {
+                    issue.setLineNumber(line);
+                    snapped++;
+                }
+                newIssues.add(issue);
             }
+
+            log.info("Filtered to {} issues on changed lines ({} snapped)", newIssues.size(), snapped);
+            issueFingerprinter.fingerprint(newIssues, content, filename);
+
+            // Annotations go to the check run right away; inline comments are
+            // submitted with the summary once all files are reviewed
+            if (checkRun != null && !newIssues.isEmpty()) {
+                List<List<CodeIssue>> batches = GitHubCommentService.annotationBatches(newIssues);
+                for (int i = 0; i < batches.size(); i++) {
+                    List<CodeIssue> batch = batches.get(i);
+                    publish(context, "annotations:" + checkRun.getId() + ":" + filename + ":" + i,
+                            () -> commentService.addAnnotations(checkRun, batch));
+                }
+            }
+            return new FileReviewResult(filename, false, false, changedLines.size(), allIssues.size(), newIssues);
+
+        } catch (ReviewCancelledException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Error reviewing {}: {}", filename, e.getMessage(), e);
+            return FileReviewResult.failed(filename);
+        }
+    }
+
+    /**
+     * Hand a GitHub write to the publish queue, to run with the given review context
+     * Writes of one PR run in order and are skipped once the context is cancelled; pass
+     * a detached context for writes that must land anyway. A full queue drops the write
+     * (counted in its metrics).
+     */
+    private void publish(ReviewContext context, String idempotencyKey, Callable<Boolean> write) {
+        String prKey = context.prKey();
+        if (!publishQueue.submit(prKey, prKey + ":" + idempotencyKey,
+                context.wrap(write), context.cancellation())) {
+            log.warn("⚠️ Dropped GitHub write {} for PR #{}", idempotencyKey, context.prNumber());
         }
     }
 
@@ -259,11 +579,36 @@ public class ReviewOrchestrator {
     public boolean canConnectToGitHub() {
         try {
             // Pass null for installationId in health check
-            gitHubService.getChangedFiles("octocat", "Hello-World", 1);
+            gitHubService.forEachChangedFilesPage("octocat", "Hello-World", 1, page -> { });
             return true;
         } catch (Exception e) {
             log.error("Cannot connect to GitHub: {}", e.getMessage());
             return false;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Per-file results of a review and the number of changed files listed
+     */
+    private record ReviewedFiles(int listedFiles, List<FileReviewResult> results) {
+    }
+
+    /**
+     * Outcome of reviewing one file, used to build the summary
+     */
+    private record FileReviewResult(String filename, boolean skipped, boolean failed,
+                                    int changedLines, int totalIssues, List<CodeIssue> issues) {
+
+        static FileReviewResult skipped(String filename) {
+            return new FileReviewResult(filename, true, false, 0, 0, List.of());
+        }
+
+        static FileReviewResult failed(String filename) {
+            return new FileReviewResult(filename, false, true, 0, 0, List.of());
+        }
+
+        int newIssues() {
+            return issues.size();
+        }
+    }
+}
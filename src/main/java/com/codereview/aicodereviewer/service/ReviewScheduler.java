@@ -0,0 +1,501 @@
+package com.codereview.aicodereviewer.service;
+
+import com.codereview.aicodereviewer.model.PullRequestEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Runs pull request reviews on a bounded worker pool
+ *
+ * Reviews are queued per GitHub App installation and served with deficit round robin,
+ * so one installation opening hundreds of PRs cannot starve the others. Each
+ * installation has a weight (its share of the workers), a cap on concurrently running
+ * reviews and a cap on queued reviews. The running cap only applies while other
+ * installations have reviews waiting, so a single installation (or PAT mode) can use
+ * every worker. When the queue is full new reviews are rejected so memory and outbound
+ * concurrency stay flat under webhook bursts.
+ *
+ * Within an installation, cheap reviews run first (shortest job first). The cost of a
+ * review is estimated from the PR size hints in the webhook and the observed review
+ * time per file; queued reviews age so large PRs are never starved.
+ */
+@Service
+@Slf4j
+public class ReviewScheduler {
+
+    // Installation key used for reviews authenticated with the PAT
+    private static final long PAT_INSTALLATION = 0L;
+
+    private final ReviewOrchestrator reviewOrchestrator;
+    private final WebhookJournal webhookJournal;
+    private final int queueCapacity;
+    private final int installationQueueCapacity;
+    private final int installationMaxConcurrency;
+    private final Map<Long, Integer> installationWeights;
+    private final long quantumMillis;
+    private final double agingRate;
+    private final long millisPerChangedLine;
+    private final long startNanos = System.nanoTime();
+    private final List<Thread> workers = new ArrayList<>();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition workAvailable = lock.newCondition();
+    private final Map<Long, InstallationQueue> installations = new HashMap<>();
+    // Installations with queued reviews, in round-robin order
+    private final Deque<InstallationQueue> activeRing = new ArrayDeque<>();
+    private int queued;
+    private int running;
+    private long sequence;
+    // Moving average of observed review time per changed file
+    private double millisPerFile;
+    private boolean shuttingDown;
+    private volatile boolean forcedShutdown;
+
+    // Metrics
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong cancelled = new AtomicLong();
+    private final AtomicLong totalWaitMillis = new AtomicLong();
+    private final LongAccumulator maxWaitMillis = new LongAccumulator(Math::max, 0);
+    private final AtomicLong totalTimeToReviewMillis = new AtomicLong();
+
+    public ReviewScheduler(ReviewOrchestrator reviewOrchestrator,
+                           WebhookJournal webhookJournal,
+                           @Value("${review.scheduler.workers:4}") int workerCount,
+                           @Value("${review.scheduler.queue-capacity:100}") int queueCapacity,
+                           @Value("${review.scheduler.installation-queue-capacity:50}") int installationQueueCapacity,
+                           @Value("${review.scheduler.installation-max-concurrency:2}") int installationMaxConcurrency,
+                           @Value("${review.scheduler.installation-weights:}") String installationWeights,
+                           @Value("${review.scheduler.quantum-millis:60000}") long quantumMillis,
+                           @Value("${review.scheduler.aging-rate:1.0}") double agingRate,
+                           @Value("${review.scheduler.initial-millis-per-file:8000}") long initialMillisPerFile,
+                           @Value("${review.scheduler.millis-per-changed-line:5}") long millisPerChangedLine) {
+        this.reviewOrchestrator = reviewOrchestrator;
+        this.webhookJournal = webhookJournal;
+        this.queueCapacity = queueCapacity;
+        this.installationQueueCapacity = installationQueueCapacity;
+        this.installationMaxConcurrency = installationMaxConcurrency;
+        this.installationWeights = parseWeights(installationWeights);
+        this.quantumMillis = quantumMillis;
+        this.agingRate = agingRate;
+        this.millisPerFile = initialMillisPerFile;
+        this.millisPerChangedLine = millisPerChangedLine;
+
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("review-worker-");
+        for (int i = 0; i < workerCount; i++) {
+            Thread worker = threadFactory.newThread(this::workerLoop);
+            workers.add(worker);
+            worker.start();
+        }
+
+        log.info("Review scheduler started: {} workers, queue capacity {} ({} per installation, {} running per installation)",
+                workerCount, queueCapacity, installationQueueCapacity, installationMaxConcurrency);
+    }
+
+    /**
+     * Queue a review for execution
+     *
+     * @param event The pull request event to review
+     * @param cancellation Token the review checks between steps
+     * @param onFinished Called once the review and its GitHub writes have finished, whatever their outcome
+     * @return true if the review was queued, false if the queue is full
+     */
+    public boolean submit(PullRequestEvent event, CancellationToken cancellation, Runnable onFinished) {
+        lock.lock();
+        try {
+            InstallationQueue installation = installationFor(event.getInstallationId());
+            if (shuttingDown || !hasCapacity(installation)) {
+                rejected.incrementAndGet();
+                installation.rejected++;
+                log.warn("⚠️ Review queue full, rejecting {} (installation {})", event.prKey(), installation.id);
+                return false;
+            }
+
+            installation.jobs.add(new ReviewJob(event, cancellation, onFinished, installation));
+            if (installation.jobs.size() == 1) {
+                activeRing.addLast(installation);
+            }
+            queued++;
+            submitted.incrementAndGet();
+            workAvailable.signal();
+
+            log.info("Queued review for {} (installation {} depth: {}, total depth: {})",
+                    event.prKey(), installation.id, installation.jobs.size(), queued);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Whether a new review for this installation would currently be accepted
+     */
+    public boolean hasCapacity(Long installationId) {
+        lock.lock();
+        try {
+            return !shuttingDown && hasCapacity(installationFor(installationId));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Current scheduler metrics, overall and per installation
+     */
+    public Map<String, Object> getStats() {
+        long done = completed.get() + failed.get() + cancelled.get();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        Map<String, Object> perInstallation = new LinkedHashMap<>();
+        lock.lock();
+        try {
+            stats.put("queueDepth", queued);
+            stats.put("activeWorkers", running);
+            stats.put("estimatedMillisPerFile", Math.round(millisPerFile));
+            for (InstallationQueue installation : installations.values()) {
+                perInstallation.put(String.valueOf(installation.id), installation.getStats());
+            }
+        } finally {
+            lock.unlock();
+        }
+        stats.put("queueCapacity", queueCapacity);
+        stats.put("maxWorkers", workers.size());
+        stats.put("submitted", submitted.get());
+        stats.put("rejected", rejected.get());
+        stats.put("completed", completed.get());
+        stats.put("failed", failed.get());
+        stats.put("cancelled", cancelled.get());
+        stats.put("avgWaitMillis", done > 0 ? totalWaitMillis.get() / done : 0);
+        stats.put("maxWaitMillis", maxWaitMillis.get());
+        stats.put("avgTimeToReviewMillis", done > 0 ? totalTimeToReviewMillis.get() / done : 0);
+        stats.put("installations", perInstallation);
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        lock.lock();
+        try {
+            log.info("Shutting down review scheduler ({} reviews queued)", queued);
+            shuttingDown = true;
+            workAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        // Let running reviews finish; queued ones stay in the journal and are replayed
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        try {
+            for (Thread worker : workers) {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining > 0) {
+                    worker.join(remaining);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (workers.stream().anyMatch(Thread::isAlive)) {
+            forcedShutdown = true;
+            workers.forEach(Thread::interrupt);
+        }
+    }
+
+    private void workerLoop() {
+        while (true) {
+            ReviewJob job;
+            try {
+                job = take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (job == null) {
+                return;
+            }
+
+            long startedAt = System.nanoTime();
+            try {
+                job.run();
+            } finally {
+                release(job, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+            }
+        }
+    }
+
+    /**
+     * Block until a review may run, or return null on shutdown
+     */
+    private ReviewJob take() throws InterruptedException {
+        lock.lock();
+        try {
+            while (true) {
+                if (shuttingDown) {
+                    return null;
+                }
+
+                ReviewJob job = pollNext();
+                if (job != null) {
+                    queued--;
+                    running++;
+                    job.installation.running++;
+                    // Taking this job may have lifted the cap of the remaining installation
+                    if (!activeRing.isEmpty()) {
+                        workAvailable.signal();
+                    }
+                    return job;
+                }
+                workAvailable.await();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(ReviewJob job, long runMillis) {
+        lock.lock();
+        try {
+            running--;
+            job.installation.running--;
+
+            // Learn the review time per file from reviews that ran to the end; failed
+            // and cancelled ones stop early and would drag the estimate down
+            if (job.succeeded && job.event.getChangedFiles() > 0) {
+                double observed = (double) runMillis / job.event.getChangedFiles();
+                millisPerFile = 0.8 * millisPerFile + 0.2 * observed;
+            }
+
+            // The installation may have been held back by its concurrency cap
+            if (!job.installation.jobs.isEmpty()) {
+                workAvailable.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Deficit round robin over installations with queued reviews
+     *
+     * The installation at the head of the ring earns its quantum (weight x quantum-millis)
+     * when its turn starts and keeps the turn while its deficit covers the estimated cost
+     * of its next review. Then it moves to the back, so installations share workers by
+     * estimated review time. Installations at their concurrency cap are passed over
+     * while another installation has reviews queued. Must be called with the lock held.
+     *
+     * @return The next review to run, or null if every installation is capped
+     */
+    private ReviewJob pollNext() {
+        while (true) {
+            boolean anyEligible = false;
+
+            for (int i = 0, size = activeRing.size(); i < size; i++) {
+                InstallationQueue installation = activeRing.peekFirst();
+
+                if (installation.running >= installationMaxConcurrency && activeRing.size() > 1) {
+                    installation.turnStarted = false;
+                    activeRing.addLast(activeRing.pollFirst());
+                    continue;
+                }
+                anyEligible = true;
+
+                if (!installation.turnStarted) {
+                    installation.deficit += installation.weight * quantumMillis;
+                    installation.turnStarted = true;
+                }
+
+                ReviewJob job = installation.jobs.peek();
+                if (installation.deficit >= job.cost) {
+                    installation.deficit -= job.cost;
+                    installation.jobs.poll();
+                    if (installation.jobs.isEmpty()) {
+                        activeRing.pollFirst();
+                        installation.deficit = 0;
+                        installation.turnStarted = false;
+                    }
+                    return job;
+                }
+
+                // Turn over: not enough deficit for the next review
+                installation.turnStarted = false;
+                activeRing.addLast(activeRing.pollFirst());
+            }
+
+            if (!anyEligible) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Estimated review time in milliseconds, from the PR size hints
+     * Must be called with the lock held.
+     */
+    private long estimateCost(PullRequestEvent event) {
+        int files = Math.max(1, event.getChangedFiles());
+        long lines = (long) event.getAdditions() + event.getDeletions();
+        return Math.max(1, Math.round(files * millisPerFile) + lines * millisPerChangedLine);
+    }
+
+    private boolean hasCapacity(InstallationQueue installation) {
+        return queued < queueCapacity && installation.jobs.size() < installationQueueCapacity;
+    }
+
+    private InstallationQueue installationFor(Long installationId) {
+        long id = installationId != null ? installationId : PAT_INSTALLATION;
+        return installations.computeIfAbsent(id,
+                key -> new InstallationQueue(key, installationWeights.getOrDefault(key, 1)));
+    }
+
+    /**
+     * Parse "installationId:weight" pairs, e.g. "12345:3,67890:2"
+     */
+    private static Map<Long, Integer> parseWeights(String value) {
+        Map<Long, Integer> weights = new HashMap<>();
+        if (value == null || value.isBlank()) {
+            return weights;
+        }
+
+        for (String pair : value.split(",")) {
+            String[] parts = pair.trim().split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid installation weight: " + pair);
+            }
+            weights.put(Long.parseLong(parts[0].trim()), Math.max(1, Integer.parseInt(parts[1].trim())));
+        }
+        return weights;
+    }
+
+    /**
+     * Queue and round-robin state of one installation
+     * Guarded by the scheduler lock
+     */
+    private static class InstallationQueue {
+
+        private final long id;
+        private final int weight;
+        private final Queue<ReviewJob> jobs = new PriorityQueue<>(
+                Comparator.comparingDouble((ReviewJob job) -> job.priority).thenComparingLong(job -> job.sequence));
+        private int running;
+        private long deficit;
+        private boolean turnStarted;
+
+        // Metrics
+        private long dispatched;
+        private long rejected;
+        private long totalWaitMillis;
+        private long maxWaitMillis;
+
+        InstallationQueue(long id, int weight) {
+            this.id = id;
+            this.weight = weight;
+        }
+
+        void recordWait(long waitMillis) {
+            dispatched++;
+            totalWaitMillis += waitMillis;
+            maxWaitMillis = Math.max(maxWaitMillis, waitMillis);
+        }
+
+        Map<String, Object> getStats() {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("weight", weight);
+            stats.put("queued", jobs.size());
+            stats.put("running", running);
+            stats.put("dispatched", dispatched);
+            stats.put("rejected", rejected);
+            stats.put("avgWaitMillis", dispatched > 0 ? totalWaitMillis / dispatched : 0);
+            stats.put("maxWaitMillis", maxWaitMillis);
+            return stats;
+        }
+    }
+
+    /**
+     * A queued review with its estimated cost
+     * Created under the scheduler lock
+     */
+    private class ReviewJob implements Runnable {
+
+        private final PullRequestEvent event;
+        private final CancellationToken cancellation;
+        private final Runnable onFinished;
+        private final InstallationQueue installation;
+        private final long enqueuedAt = System.nanoTime();
+        private final long sequence = ReviewScheduler.this.sequence++;
+        // Estimated review time, charged against the installation's deficit
+        private final long cost;
+        // Lower runs first. Effective priority is cost - agingRate * waited; since every
+        // job ages at the same rate, ordering by cost + agingRate * enqueuedAt is equivalent
+        // and does not change while the job waits
+        private final double priority;
+        // Set by the worker running the job
+        private boolean succeeded;
+
+        ReviewJob(PullRequestEvent event, CancellationToken cancellation, Runnable onFinished,
+                  InstallationQueue installation) {
+            this.event = event;
+            this.cancellation = cancellation;
+            this.onFinished = onFinished;
+            this.installation = installation;
+            this.cost = estimateCost(event);
+            this.priority = cost + agingRate * TimeUnit.NANOSECONDS.toMillis(enqueuedAt - startNanos);
+        }
+
+        @Override
+        public void run() {
+            long waitMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - enqueuedAt);
+            totalWaitMillis.addAndGet(waitMillis);
+            maxWaitMillis.accumulate(waitMillis);
+            lock.lock();
+            try {
+                installation.recordWait(waitMillis);
+            } finally {
+                lock.unlock();
+            }
+            log.info("Starting queued review for {} after {} ms in queue", event.prKey(), waitMillis);
+
+            try {
+                boolean reviewed = reviewOrchestrator.processPullRequest(event.getOwner(), event.getRepo(),
+                        event.getPrNumber(), event.getHeadSha(), event.getInstallationId(), cancellation);
+                if (cancellation.isCancelled()) {
+                    cancelled.incrementAndGet();
+                } else if (reviewed) {
+                    succeeded = true;
+                    completed.incrementAndGet();
+                } else {
+                    failed.incrementAndGet();
+                }
+            } catch (Exception e) {
+                failed.incrementAndGet();
+                log.error("Review for {} failed: {}", event.prKey(), e.getMessage(), e);
+            } finally {
+                totalTimeToReviewMillis.addAndGet(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - enqueuedAt));
+                reviewOrchestrator.whenPublished(event.getOwner(), event.getRepo(), event.getPrNumber())
+                        .whenComplete((ignored, e) -> finish());
+            }
+        }
+
+        /**
+         * Called once the review's queued GitHub writes have finished
+         */
+        private void finish() {
+            // Reviews cut short by shutdown, or whose writes were abandoned, stay in the journal and are replayed
+            if (!forcedShutdown) {
+                webhookJournal.markCompleted(event);
+            }
+            onFinished.run();
+        }
+    }
+}
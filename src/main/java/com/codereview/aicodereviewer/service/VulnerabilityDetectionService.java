@@ -5,7 +5,9 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
@@ -20,12 +22,14 @@ import java.util.List;
  */
 @Service
 @Slf4j
+@RequiredArgsConstructor
 public class VulnerabilityDetectionService {
 
     @Value("${ml.model.api.url:http://localhost:8000}")
     private String mlApiUrl;
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    @Qualifier("mlRestTemplate")
+    private final RestTemplate restTemplate;
 
     /**
      * Analyze Java code for security vulnerabilities using trained ML model
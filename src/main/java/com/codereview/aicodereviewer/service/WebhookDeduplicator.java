@@ -0,0 +1,164 @@
+package com.codereview.aicodereviewer.service;
+
+import com.codereview.aicodereviewer.model.PullRequestEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Drops GitHub webhook redeliveries before any work is scheduled
+ *
+ * Remembers recent delivery IDs (X-GitHub-Delivery) and recent (repo, PR, head SHA)
+ * triples in bounded, lock-free sets. A redelivered webhook, or a second event for a
+ * head SHA that was already accepted, is recognised and ignored.
+ */
+@Service
+@Slf4j
+public class WebhookDeduplicator {
+
+    private final RecentKeySet deliveries;
+    private final RecentKeySet headShas;
+
+    // Metrics
+    private final AtomicLong checked = new AtomicLong();
+    private final AtomicLong deliveryHits = new AtomicLong();
+    private final AtomicLong headShaHits = new AtomicLong();
+
+    public WebhookDeduplicator(@Value("${webhook.dedup.capacity:10000}") int capacity) {
+        this.deliveries = new RecentKeySet(capacity);
+        this.headShas = new RecentKeySet(capacity);
+    }
+
+    /**
+     * Record a delivery ID
+     *
+     * @param deliveryId Value of the X-GitHub-Delivery header (may be null)
+     * @return true if this delivery was already seen
+     */
+    public boolean isDuplicateDelivery(String deliveryId) {
+        checked.incrementAndGet();
+        if (deliveryId == null || deliveryId.isEmpty()) {
+            return false;
+        }
+
+        if (!deliveries.add(deliveryId)) {
+            deliveryHits.incrementAndGet();
+            log.info("Ignoring redelivered webhook {}", deliveryId);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Record the (repo, PR, head SHA) of a review event
+     *
+     * @return true if a review for this head SHA was already accepted
+     */
+    public boolean isDuplicateHeadSha(PullRequestEvent event) {
+        if (!headShas.add(headShaKey(event))) {
+            headShaHits.incrementAndGet();
+            log.info("Ignoring repeated event for {} at {}", event.prKey(), event.getHeadSha());
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Forget an event that was not accepted, so a later redelivery is processed
+     * Must be called on every path that does not end with the review queued
+     *
+     * @param event The parsed event, or null if parsing failed
+     */
+    public void forget(String deliveryId, PullRequestEvent event) {
+        if (deliveryId != null) {
+            deliveries.remove(deliveryId);
+        }
+        if (event != null) {
+            headShas.remove(headShaKey(event));
+        }
+    }
+
+    /**
+     * Current deduplication metrics
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("checked", checked.get());
+        stats.put("deliveryHits", deliveryHits.get());
+        stats.put("headShaHits", headShaHits.get());
+        stats.put("trackedDeliveries", deliveries.size());
+        stats.put("trackedHeadShas", headShas.size());
+        return stats;
+    }
+
+    private static String headShaKey(PullRequestEvent event) {
+        return event.prKey() + "@" + event.getHeadSha();
+    }
+
+    /**
+     * Bounded set of recently seen keys
+     *
+     * Keys live in two generations. When the current generation is full it becomes the
+     * previous one and the old previous generation is dropped, so at most `capacity`
+     * keys are retained and the oldest half is evicted at once. All operations are
+     * lock-free; generations are swapped with a compare-and-set.
+     */
+    static class RecentKeySet {
+
+        private final int generationCapacity;
+        private final AtomicReference<Generations> generations;
+
+        RecentKeySet(int capacity) {
+            this.generationCapacity = Math.max(1, capacity / 2);
+            this.generations = new AtomicReference<>(new Generations(newGeneration(), newGeneration()));
+        }
+
+        /**
+         * @return true if the key was not present
+         */
+        boolean add(String key) {
+            Generations current = generations.get();
+            if (current.previous.keys.contains(key) || !current.active.keys.add(key)) {
+                return false;
+            }
+
+            if (current.active.size.incrementAndGet() >= generationCapacity) {
+                generations.compareAndSet(current, new Generations(newGeneration(), current.active));
+            }
+            return true;
+        }
+
+        void remove(String key) {
+            Generations current = generations.get();
+            if (current.active.keys.remove(key)) {
+                current.active.size.decrementAndGet();
+            }
+            if (current.previous.keys.remove(key)) {
+                current.previous.size.decrementAndGet();
+            }
+        }
+
+        int size() {
+            Generations current = generations.get();
+            return current.active.size.get() + current.previous.size.get();
+        }
+
+        private static Generation newGeneration() {
+            return new Generation(ConcurrentHashMap.newKeySet(), new AtomicInteger());
+        }
+
+        private record Generation(Set<String> keys, AtomicInteger size) {
+        }
+
+        private record Generations(Generation active, Generation previous) {
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.codereview.aicodereviewer.service;
+
+import com.codereview.aicodereviewer.model.PullRequestEvent;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+
+/**
+ * Extracts the fields the review pipeline needs from a pull_request webhook payload
+ * (identity, head SHA, installation and PR size hints)
+ *
+ * Uses Jackson's streaming JsonParser: the handful of fields we use are read into a
+ * PullRequestEvent and every other value (PR body, labels, user and repo objects...)
+ * is skipped token by token without being materialized.
+ */
+@Service
+public class WebhookEventParser {
+
+    private final JsonFactory jsonFactory;
+
+    public WebhookEventParser(ObjectMapper objectMapper) {
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    /**
+     * Parse a pull_request webhook payload
+     *
+     * @param body Raw webhook body
+     * @return The extracted event
+     * @throws IOException if the payload is not valid JSON or misses a required field
+     */
+    public PullRequestEvent parsePullRequestEvent(byte[] body) throws IOException {
+        PullRequestEvent event = new PullRequestEvent();
+
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Webhook payload is not a JSON object");
+            }
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+
+                switch (field) {
+                    case "action" -> event.setAction(parser.getValueAsString());
+                    case "pull_request" -> readPullRequest(parser, event);
+                    case "repository" -> readRepository(parser, event);
+                    case "installation" -> readInstallation(parser, event);
+                    default -> parser.skipChildren();
+                }
+            }
+        }
+
+        if (event.getAction() == null || event.getOwner() == null
+                || event.getPrNumber() == 0 || event.getHeadSha() == null) {
+            throw new IOException("Webhook payload is missing pull request fields");
+        }
+
+        return event;
+    }
+
+    private void readPullRequest(JsonParser parser, PullRequestEvent event) throws IOException {
+        if (!isObject(parser)) {
+            return;
+        }
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+
+            switch (field) {
+                case "number" -> event.setPrNumber(parser.getValueAsInt());
+                case "changed_files" -> event.setChangedFiles(parser.getValueAsInt());
+                case "additions" -> event.setAdditions(parser.getValueAsInt());
+                case "deletions" -> event.setDeletions(parser.getValueAsInt());
+                case "head" -> readHead(parser, event);
+                default -> parser.skipChildren();
+            }
+        }
+    }
+
+    private void readHead(JsonParser parser, PullRequestEvent event) throws IOException {
+        if (!isObject(parser)) {
+            return;
+        }
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+
+            if ("sha".equals(field)) {
+                event.setHeadSha(parser.getValueAsString());
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private void readRepository(JsonParser parser, PullRequestEvent event) throws IOException {
+        if (!isObject(parser)) {
+            return;
+        }
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+
+            if ("full_name".equals(field)) {
+                String fullName = parser.getValueAsString();
+                int slash = fullName != null ? fullName.indexOf('/') : -1;
+                if (slash > 0) {
+                    event.setOwner(fullName.substring(0, slash));
+                    event.setRepo(fullName.substring(slash + 1));
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private void readInstallation(JsonParser parser, PullRequestEvent event) throws IOException {
+        if (!isObject(parser)) {
+            return;
+        }
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+
+            if ("id".equals(field)) {
+                event.setInstallationId(parser.getValueAsLong());
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    /**
+     * Whether the current token starts an object; skips the value otherwise
+     */
+    private static boolean isObject(JsonParser parser) throws IOException {
+        if (parser.currentToken() == JsonToken.START_OBJECT) {
+            return true;
+        }
+        parser.skipChildren();
+        return false;
+    }
+}
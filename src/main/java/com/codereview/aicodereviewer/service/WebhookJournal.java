@@ -0,0 +1,347 @@
+package com.codereview.aicodereviewer.service;
+
+import com.codereview.aicodereviewer.model.PullRequestEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only on-disk journal of accepted webhook events
+ *
+ * Each accepted event is appended to a memory-mapped segment file before the webhook
+ * is acknowledged, and a completion record is appended once its review finishes.
+ * Segments are fsynced in batches on a short interval. On startup the segments are
+ * scanned and every event without a completion record is handed back for replay.
+ *
+ * Record layout: [int payloadLength][int crc32][byte type][long seq][payload]
+ */
+@Service
+@Slf4j
+public class WebhookJournal {
+
+    private static final int HEADER_SIZE = 4 + 4 + 1 + 8;
+    private static final byte TYPE_END = 0;
+    private static final byte TYPE_ACCEPTED = 1;
+    private static final byte TYPE_COMPLETED = 2;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final Path directory;
+    private final int segmentSize;
+    private final ScheduledExecutorService flusher;
+
+    // Pending (not yet completed) events by sequence number
+    private final Map<Long, PendingEntry> pending = new HashMap<>();
+    // Number of pending events per segment, used to delete fully completed segments
+    private final Map<Long, Integer> pendingPerSegment = new HashMap<>();
+    // Segment files on disk, oldest first
+    private final TreeSet<Long> segments = new TreeSet<>();
+    private final List<PullRequestEvent> recovered = new ArrayList<>();
+
+    private long nextSeq = 1;
+    private long activeSegmentId;
+    private FileChannel activeChannel;
+    private MappedByteBuffer activeBuffer;
+    private boolean dirty;
+
+    public WebhookJournal(ObjectMapper objectMapper,
+                          @Value("${review.journal.enabled:true}") boolean enabled,
+                          @Value("${review.journal.dir:data/journal}") String directory,
+                          @Value("${review.journal.segment-size-bytes:4194304}") int segmentSize,
+                          @Value("${review.journal.fsync-interval-ms:200}") long fsyncIntervalMillis) {
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.directory = Paths.get(directory);
+        this.segmentSize = segmentSize;
+
+        if (!enabled) {
+            log.info("Webhook journal disabled");
+            this.flusher = null;
+            return;
+        }
+
+        try {
+            Files.createDirectories(this.directory);
+            long lastSegmentId = recover();
+            openSegment(lastSegmentId + 1);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not open webhook journal in " + this.directory, e);
+        }
+
+        this.flusher = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("journal-fsync-"));
+        this.flusher.scheduleWithFixedDelay(this::flush, fsyncIntervalMillis, fsyncIntervalMillis, TimeUnit.MILLISECONDS);
+
+        log.info("📒 Webhook journal ready in {} ({} events to replay)", this.directory, recovered.size());
+    }
+
+    /**
+     * Append an accepted event to the journal
+     * Sets the journal sequence number on the event
+     *
+     * @throws IOException if the event could not be written; it must not be acknowledged then
+     */
+    public synchronized void append(PullRequestEvent event) throws IOException {
+        if (!enabled) {
+            return;
+        }
+
+        long seq = nextSeq++;
+        byte[] payload = objectMapper.writeValueAsBytes(event);
+        writeRecord(TYPE_ACCEPTED, seq, payload);
+
+        event.setJournalSeq(seq);
+        pending.put(seq, new PendingEntry(activeSegmentId, event));
+        pendingPerSegment.merge(activeSegmentId, 1, Integer::sum);
+    }
+
+    /**
+     * Record that the review for an event is finished (or will never run)
+     */
+    public synchronized void markCompleted(PullRequestEvent event) {
+        Long seq = event.getJournalSeq();
+        if (!enabled || seq == null) {
+            return;
+        }
+
+        PendingEntry entry = pending.remove(seq);
+        if (entry == null) {
+            return;
+        }
+
+        try {
+            writeRecord(TYPE_COMPLETED, seq, new byte[0]);
+        } catch (IOException e) {
+            log.error("❌ Could not journal completion for {}: {}", event.prKey(), e.getMessage());
+        }
+
+        int remaining = pendingPerSegment.merge(entry.segmentId(), -1, Integer::sum);
+        if (remaining <= 0) {
+            pendingPerSegment.remove(entry.segmentId());
+            deleteCompletedSegments();
+        }
+    }
+
+    /**
+     * Events that were accepted but never completed before the last shutdown
+     * Returns them once; later calls return an empty list
+     */
+    public synchronized List<PullRequestEvent> drainRecovered() {
+        List<PullRequestEvent> events = new ArrayList<>(recovered);
+        recovered.clear();
+        return events;
+    }
+
+    /**
+     * Current journal metrics
+     */
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("pendingEvents", pending.size());
+        stats.put("segments", segments.size());
+        stats.put("activeSegment", activeSegmentId);
+        stats.put("activeSegmentBytes", activeBuffer != null ? activeBuffer.position() : 0);
+        return stats;
+    }
+
+    /**
+     * Force dirty pages of the active segment to disk
+     * The msync runs outside the lock so appends are never blocked by it
+     */
+    public void flush() {
+        MappedByteBuffer buffer;
+        synchronized (this) {
+            if (!dirty || activeBuffer == null) {
+                return;
+            }
+            buffer = activeBuffer;
+            dirty = false;
+        }
+        buffer.force();
+    }
+
+    @PreDestroy
+    public void close() {
+        if (!enabled) {
+            return;
+        }
+
+        flusher.shutdown();
+        synchronized (this) {
+            flush();
+            try {
+                activeChannel.close();
+            } catch (IOException e) {
+                log.warn("Error closing journal segment: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void writeRecord(byte type, long seq, byte[] payload) throws IOException {
+        int recordSize = HEADER_SIZE + payload.length;
+        if (recordSize > segmentSize) {
+            throw new IOException("Journal record of " + recordSize + " bytes exceeds segment size");
+        }
+
+        if (activeBuffer.remaining() < recordSize) {
+            rollSegment();
+        }
+
+        activeBuffer.putInt(payload.length);
+        activeBuffer.putInt(checksum(type, seq, payload));
+        activeBuffer.put(type);
+        activeBuffer.putLong(seq);
+        activeBuffer.put(payload);
+        dirty = true;
+    }
+
+    private void rollSegment() throws IOException {
+        activeBuffer.force();
+        activeChannel.close();
+        openSegment(activeSegmentId + 1);
+        deleteCompletedSegments();
+    }
+
+    private void openSegment(long segmentId) throws IOException {
+        activeSegmentId = segmentId;
+        activeChannel = FileChannel.open(segmentPath(segmentId),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        activeBuffer = activeChannel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        segments.add(segmentId);
+        dirty = false;
+    }
+
+    /**
+     * Delete the oldest segments that have no pending events left
+     * Only a prefix is deleted: a newer segment may hold completion records
+     * for events accepted in an older one, so it must outlive it
+     */
+    private void deleteCompletedSegments() {
+        while (!segments.isEmpty()) {
+            long oldest = segments.first();
+            if (oldest == activeSegmentId || pendingPerSegment.containsKey(oldest)) {
+                return;
+            }
+            segments.pollFirst();
+            deleteSegment(oldest);
+        }
+    }
+
+    /**
+     * Scan existing segments and rebuild the pending set
+     *
+     * @return Highest segment ID found (0 if none)
+     */
+    private long recover() throws IOException {
+        List<Long> segmentIds = listSegments();
+        Map<Long, PendingEntry> accepted = new LinkedHashMap<>();
+
+        for (long segmentId : segmentIds) {
+            try (FileChannel channel = FileChannel.open(segmentPath(segmentId), StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                readSegment(segmentId, buffer, accepted);
+            }
+        }
+
+        for (Map.Entry<Long, PendingEntry> entry : accepted.entrySet()) {
+            pending.put(entry.getKey(), entry.getValue());
+            pendingPerSegment.merge(entry.getValue().segmentId(), 1, Integer::sum);
+            recovered.add(entry.getValue().event());
+        }
+
+        segments.addAll(segmentIds);
+        return segmentIds.isEmpty() ? 0 : segmentIds.get(segmentIds.size() - 1);
+    }
+
+    private void readSegment(long segmentId, MappedByteBuffer buffer, Map<Long, PendingEntry> accepted) {
+        while (buffer.remaining() >= HEADER_SIZE) {
+            int start = buffer.position();
+            try {
+                int length = buffer.getInt();
+                int crc = buffer.getInt();
+                byte type = buffer.get();
+                long seq = buffer.getLong();
+
+                if (type == TYPE_END || length < 0 || length > buffer.remaining()) {
+                    return;
+                }
+
+                byte[] payload = new byte[length];
+                buffer.get(payload);
+                if (checksum(type, seq, payload) != crc) {
+                    log.warn("Journal segment {} has a torn record at offset {}, stopping", segmentId, start);
+                    return;
+                }
+
+                nextSeq = Math.max(nextSeq, seq + 1);
+                if (type == TYPE_ACCEPTED) {
+                    PullRequestEvent event = objectMapper.readValue(payload, PullRequestEvent.class);
+                    event.setJournalSeq(seq);
+                    accepted.put(seq, new PendingEntry(segmentId, event));
+                } else if (type == TYPE_COMPLETED) {
+                    accepted.remove(seq);
+                }
+            } catch (BufferUnderflowException | IOException e) {
+                log.warn("Journal segment {} unreadable at offset {}: {}", segmentId, start, e.getMessage());
+                return;
+            }
+        }
+    }
+
+    private List<Long> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private void deleteSegment(long segmentId) {
+        try {
+            Files.deleteIfExists(segmentPath(segmentId));
+            log.debug("Deleted completed journal segment {}", segmentId);
+        } catch (IOException e) {
+            log.warn("Could not delete journal segment {}: {}", segmentId, e.getMessage());
+        }
+    }
+
+    private Path segmentPath(long segmentId) {
+        return directory.resolve(String.format("%s%010d%s", SEGMENT_PREFIX, segmentId, SEGMENT_SUFFIX));
+    }
+
+    private static int checksum(byte type, long seq, byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(type);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            crc.update((int) (seq >>> shift));
+        }
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    private record PendingEntry(long segmentId, PullRequestEvent event) {
+    }
+}
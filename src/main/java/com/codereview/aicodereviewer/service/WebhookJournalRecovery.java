@@ -0,0 +1,91 @@
+package com.codereview.aicodereviewer.service;
+
+import com.codereview.aicodereviewer.model.PullRequestEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays journaled webhook events whose review never completed
+ * Runs once the application is ready to accept work
+ *
+ * These events were acknowledged before the restart, so none may be dropped: events the
+ * review queue has no room for stay pending in the journal and are offered again until
+ * they fit.
+ */
+@Component
+@Slf4j
+public class WebhookJournalRecovery {
+
+    private final WebhookJournal webhookJournal;
+    private final ReviewCoalescer reviewCoalescer;
+    private final long retryMillis;
+    private final ScheduledExecutorService retryTimer =
+            Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("journal-replay-"));
+
+    public WebhookJournalRecovery(WebhookJournal webhookJournal,
+                                  ReviewCoalescer reviewCoalescer,
+                                  @Value("${review.journal.replay-retry-ms:5000}") long retryMillis) {
+        this.webhookJournal = webhookJournal;
+        this.reviewCoalescer = reviewCoalescer;
+        this.retryMillis = retryMillis;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void replayPendingReviews() {
+        List<PullRequestEvent> events = webhookJournal.drainRecovered();
+        if (events.isEmpty()) {
+            return;
+        }
+
+        log.info("🔁 Replaying {} unfinished reviews from the webhook journal", events.size());
+        replay(events);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Events still waiting stay pending in the journal and are replayed after the next start
+        retryTimer.shutdownNow();
+    }
+
+    /**
+     * Offer events in journal order and schedule another pass for the ones rejected
+     */
+    synchronized void replay(List<PullRequestEvent> events) {
+        List<PullRequestEvent> waiting = new ArrayList<>();
+        // Later pushes of a PR must not overtake an earlier one that is still waiting
+        Set<String> blocked = new HashSet<>();
+
+        for (PullRequestEvent event : events) {
+            if (blocked.contains(event.prKey())
+                    || reviewCoalescer.offer(event) == ReviewCoalescer.Outcome.REJECTED) {
+                waiting.add(event);
+                blocked.add(event.prKey());
+            }
+        }
+
+        if (waiting.isEmpty()) {
+            return;
+        }
+
+        log.info("⏳ {} replayed reviews wait for room in the review queue, retrying in {} ms", waiting.size(), retryMillis);
+        try {
+            retryTimer.schedule(() -> replay(waiting), retryMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            log.debug("Journal replay stopped, {} reviews stay in the journal", waiting.size());
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.codereview.aicodereviewer.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Verifies the X-Hub-Signature-256 header of GitHub webhooks
+ * Runs on the raw request body, before any JSON parsing
+ *
+ * Fails closed: without a secret every webhook is rejected, unless verification
+ * was switched off explicitly with github.webhook.verify=false.
+ */
+@Service
+@Slf4j
+public class WebhookSignatureVerifier {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final String PREFIX = "sha256=";
+    private static final int DIGEST_LENGTH = 32;
+
+    private final boolean enabled;
+    private final boolean configured;
+
+    // Mac is not thread-safe; keep one initialised instance per thread
+    private final ThreadLocal<Mac> mac;
+
+    // Metrics
+    private final AtomicLong verified = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public WebhookSignatureVerifier(@Value("${github.webhook.secret:}") String secret,
+                                    @Value("${github.webhook.verify:true}") boolean verify) {
+        this.enabled = verify;
+        this.configured = secret != null && !secret.isEmpty();
+
+        if (!enabled) {
+            log.warn("⚠️ github.webhook.verify=false, webhook signatures will NOT be verified");
+            this.mac = null;
+            return;
+        }
+        if (!configured) {
+            log.error("❌ github.webhook.secret is not set, all webhooks will be rejected "
+                    + "(set the secret, or github.webhook.verify=false for local testing)");
+            this.mac = null;
+            return;
+        }
+
+        SecretKeySpec key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+        this.mac = ThreadLocal.withInitial(() -> {
+            try {
+                Mac instance = Mac.getInstance(ALGORITHM);
+                instance.init(key);
+                return instance;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("HmacSHA256 not available", e);
+            }
+        });
+    }
+
+    /**
+     * Check a webhook body against its signature header
+     *
+     * @param body Raw request body
+     * @param signatureHeader Value of X-Hub-Signature-256, e.g. "sha256=ab12..."
+     * @return true if the signature matches (or verification is disabled); always false without a secret
+     */
+    public boolean isValid(byte[] body, String signatureHeader) {
+        if (!enabled) {
+            return true;
+        }
+
+        byte[] expected = parseSignature(signatureHeader);
+        if (expected == null || !configured) {
+            rejected.incrementAndGet();
+            return false;
+        }
+
+        Mac instance = mac.get();
+        byte[] actual = instance.doFinal(body);   // doFinal also resets the Mac for reuse
+
+        // Constant-time comparison
+        if (MessageDigest.isEqual(expected, actual)) {
+            verified.incrementAndGet();
+            return true;
+        }
+
+        rejected.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Current verification metrics
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("secretConfigured", configured);
+        stats.put("verified", verified.get());
+        stats.put("rejected", rejected.get());
+        return stats;
+    }
+
+    private static byte[] parseSignature(String header) {
+        if (header == null || !header.startsWith(PREFIX)
+                || header.length() != PREFIX.length() + DIGEST_LENGTH * 2) {
+            return null;
+        }
+
+        try {
+            return HexFormat.of().parseHex(header, PREFIX.length(), header.length());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.codereview.aicodereviewer.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChangedLineIndexTests {
+
+	@Test
+	void mergesRunsIntoIntervals() {
+		ChangedLineIndex index = ChangedLineIndex.of(new int[]{7, 3, 4, 5, 5, 12});
+
+		assertEquals(5, index.size());
+		assertTrue(index.contains(4));
+		assertTrue(index.contains(12));
+		assertFalse(index.contains(6));
+		assertFalse(index.contains(13));
+	}
+
+	@Test
+	void snapsToNearestChangedLine() {
+		ChangedLineIndex index = ChangedLineIndex.of(new int[]{3, 4, 5, 10});
+
+		assertEquals(4, index.nearest(4, 0));
+		assertEquals(5, index.nearest(7, 2));
+		assertEquals(-1, index.nearest(7, 1));
+		assertEquals(10, index.nearest(8, 2));
+		assertEquals(3, index.nearest(1, 2));
+		assertEquals(-1, index.nearest(20, 5));
+		assertEquals(-1, ChangedLineIndex.of(new int[0]).nearest(1, 100));
+	}
+
+	@Test
+	void agreesWithBitSet() {
+		Random random = new Random(19);
+
+		for (int round = 0; round < 200; round++) {
+			int[] lines = random.ints(random.nextInt(50), 1, 200).toArray();
+			BitSet expected = new BitSet();
+			for (int line : lines) {
+				expected.set(line);
+			}
+			ChangedLineIndex index = ChangedLineIndex.of(lines);
+
+			assertEquals(expected.cardinality(), index.size());
+			for (int line = 0; line < 210; line++) {
+				assertEquals(expected.get(line), index.contains(line));
+
+				int below = expected.previousSetBit(line);
+				int above = expected.nextSetBit(line);
+				int nearest = below < 0 ? above
+						: above < 0 || line - below <= above - line ? below : above;
+				int distance = nearest < 0 ? -1 : Math.abs(nearest - line);
+				assertEquals(distance >= 0 && distance <= 3 ? nearest : -1, index.nearest(line, 3));
+			}
+		}
+	}
+
+}
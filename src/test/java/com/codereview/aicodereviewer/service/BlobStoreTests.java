@@ -0,0 +1,123 @@
+package com.codereview.aicodereviewer.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BlobStoreTests {
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void computesGitObjectId() {
+		// git hash-object of "hello\n"
+		assertEquals("ce013625030ba8dba906f756967f9e9ca394464a", BlobStore.gitBlobSha(bytes("hello\n")));
+	}
+
+	@Test
+	void storesBlobsFannedOutByShaPrefixAndReadsThemBack() {
+		BlobStore store = store(1 << 20);
+		String sha = BlobStore.gitBlobSha(bytes("class Shop {}"));
+
+		store.put(sha, bytes("class Shop {}"));
+
+		assertTrue(Files.isRegularFile(dir.resolve(sha.substring(0, 2)).resolve(sha.substring(2))));
+		assertEquals("class Shop {}", store.get(sha));
+		assertEquals(1L, store.getStats().get("hits"));
+		assertEquals(13L, store.getStats().get("bytes"));
+	}
+
+	@Test
+	void rejectsContentThatDoesNotMatchItsSha() {
+		BlobStore store = store(1 << 20);
+		String sha = BlobStore.gitBlobSha(bytes("class Shop {}"));
+
+		store.put(sha, bytes("class Cart {}"));
+
+		assertNull(store.get(sha));
+		assertFalse(Files.exists(dir.resolve(sha.substring(0, 2))));
+		assertEquals(1L, store.getStats().get("rejected"));
+		assertEquals(0, store.getStats().get("blobs"));
+	}
+
+	@Test
+	void evictsLeastRecentlyUsedBlobsBeyondMaxBytes() {
+		// Ten bytes per blob, two blobs fit
+		BlobStore store = store(20);
+		String first = put(store, "blob-00001");
+		String second = put(store, "blob-00002");
+		store.get(first);
+		String third = put(store, "blob-00003");
+
+		assertEquals("blob-00001", store.get(first));
+		assertNull(store.get(second));
+		assertEquals("blob-00003", store.get(third));
+		assertFalse(Files.exists(dir.resolve(second.substring(0, 2)).resolve(second.substring(2))));
+		assertEquals(20L, store.getStats().get("bytes"));
+		assertEquals(1L, store.getStats().get("evictions"));
+	}
+
+	@Test
+	void rebuildsIndexFromDiskOnRestart() throws IOException {
+		BlobStore store = store(1 << 20);
+		String older = put(store, "blob-00001");
+		String newer = put(store, "blob-00002");
+		touch(older, 1_000_000);
+		touch(newer, 2_000_000);
+		// Interrupted write from before the restart
+		Path leftover = Files.createFile(dir.resolve(older.substring(0, 2)).resolve(older + "123.tmp"));
+
+		BlobStore restarted = store(1 << 20);
+
+		assertFalse(Files.exists(leftover));
+		assertEquals(2, restarted.getStats().get("blobs"));
+		assertEquals(20L, restarted.getStats().get("bytes"));
+		assertEquals("blob-00001", restarted.get(older));
+		assertEquals("blob-00002", restarted.get(newer));
+
+		// Recency survives the restart by modification time: a smaller budget drops the older blob
+		BlobStore shrunk = store(10);
+		assertNull(shrunk.get(older));
+		assertEquals("blob-00002", shrunk.get(newer));
+		assertEquals(1L, shrunk.getStats().get("evictions"));
+	}
+
+	@Test
+	void ignoresEverythingWhenDisabled() {
+		BlobStore store = new BlobStore(false, dir.resolve("disabled").toString(), 1 << 20);
+		String sha = BlobStore.gitBlobSha(bytes("class Shop {}"));
+
+		store.put(sha, bytes("class Shop {}"));
+
+		assertNull(store.get(sha));
+		assertFalse(Files.exists(dir.resolve("disabled")));
+	}
+
+	private BlobStore store(long maxBytes) {
+		return new BlobStore(true, dir.toString(), maxBytes);
+	}
+
+	private static String put(BlobStore store, String content) {
+		String sha = BlobStore.gitBlobSha(bytes(content));
+		store.put(sha, bytes(content));
+		return sha;
+	}
+
+	private void touch(String sha, long epochMillis) throws IOException {
+		Files.setLastModifiedTime(dir.resolve(sha.substring(0, 2)).resolve(sha.substring(2)),
+				FileTime.fromMillis(epochMillis));
+	}
+
+	private static byte[] bytes(String content) {
+		return content.getBytes(StandardCharsets.UTF_8);
+	}
+
+}
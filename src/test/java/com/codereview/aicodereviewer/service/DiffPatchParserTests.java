@@ -0,0 +1,268 @@
+package com.codereview.aicodereviewer.service;
+
+import com.codereview.aicodereviewer.model.ChangedFile;
+import com.codereview.aicodereviewer.model.DiffHunk;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DiffPatchParserTests {
+
+	private static final List<String> CORPUS = List.of(
+			"added_file.patch", "removed_file.patch", "multi_hunk.patch", "no_newline.patch", "no_counts.patch");
+
+	// Responses of /pulls/{n}/files for two pull requests of this repository
+	private static final List<String> PULL_REQUEST_FILES = List.of(
+			"pull_files_diff_parser.json", "pull_files_review_scheduler.json");
+
+	@Test
+	void parsesAddedFile() throws IOException {
+		List<DiffHunk> hunks = DiffPatchParser.parse(fixture("added_file.patch"));
+
+		assertEquals(1, hunks.size());
+		assertArrayEquals(new int[]{1, 2, 3}, hunks.get(0).getAddedLines());
+		assertArrayEquals(new int[0], hunks.get(0).getRemovedLines());
+		assertArrayEquals(new int[0], hunks.get(0).getOldToNew());
+	}
+
+	@Test
+	void parsesRemovedFile() throws IOException {
+		List<DiffHunk> hunks = DiffPatchParser.parse(fixture("removed_file.patch"));
+
+		assertEquals(1, hunks.size());
+		assertArrayEquals(new int[0], hunks.get(0).getAddedLines());
+		assertArrayEquals(new int[]{1, 2, 3}, hunks.get(0).getRemovedLines());
+		assertArrayEquals(new int[]{-1, -1, -1}, hunks.get(0).getOldToNew());
+	}
+
+	@Test
+	void parsesHunksWithFunctionContext() throws IOException {
+		List<DiffHunk> hunks = DiffPatchParser.parse(fixture("multi_hunk.patch"));
+
+		assertEquals(2, hunks.size());
+		DiffHunk first = hunks.get(0);
+		assertEquals(1, first.getOldStart());
+		assertEquals(6, first.getNewLines());
+		assertArrayEquals(new int[]{3, 4}, first.getAddedLines());
+		assertArrayEquals(new int[]{3}, first.getRemovedLines());
+		assertArrayEquals(new int[]{1, 2, -1, 5, 6}, first.getOldToNew());
+
+		DiffHunk second = hunks.get(1);
+		assertEquals(20, second.getOldStart());
+		assertEquals(21, second.getNewStart());
+		assertArrayEquals(new int[]{22}, second.getAddedLines());
+		assertArrayEquals(new int[]{21, 22}, second.getRemovedLines());
+		assertArrayEquals(new int[]{21, -1, -1, 23}, second.getOldToNew());
+	}
+
+	@Test
+	void ignoresNoNewlineMarkers() throws IOException {
+		List<DiffHunk> hunks = DiffPatchParser.parse(fixture("no_newline.patch"));
+
+		assertEquals(1, hunks.size());
+		assertArrayEquals(new int[]{2}, hunks.get(0).getAddedLines());
+		assertArrayEquals(new int[]{2}, hunks.get(0).getRemovedLines());
+		assertArrayEquals(new int[]{1, -1}, hunks.get(0).getOldToNew());
+	}
+
+	@Test
+	void defaultsOmittedCountsToOne() throws IOException {
+		List<DiffHunk> hunks = DiffPatchParser.parse(fixture("no_counts.patch"));
+
+		assertEquals(1, hunks.size());
+		assertEquals(1, hunks.get(0).getOldLines());
+		assertEquals(1, hunks.get(0).getNewLines());
+		assertArrayEquals(new int[]{3}, hunks.get(0).getAddedLines());
+		assertArrayEquals(new int[]{3}, hunks.get(0).getRemovedLines());
+	}
+
+	@Test
+	void mapsOldLinesAcrossHunks() throws IOException {
+		ChangedFile file = ChangedFile.builder()
+				.filename("src/Cart.java")
+				.hunks(DiffPatchParser.parse(fixture("multi_hunk.patch")))
+				.build();
+
+		assertEquals(2, file.mapOldToNew(2));
+		assertEquals(-1, file.mapOldToNew(3));
+		assertEquals(11, file.mapOldToNew(10));   // shifted by the first hunk
+		assertEquals(-1, file.mapOldToNew(21));
+		assertEquals(30, file.mapOldToNew(30));   // both hunks cancel out
+		assertEquals(List.of(3, 4, 22), file.getChangedLines());
+	}
+
+	@Test
+	void countsAdditionsAndDeletionsOfRealPullRequests() throws IOException {
+		for (String name : PULL_REQUEST_FILES) {
+			for (JsonNode file : new ObjectMapper().readTree(fixture(name))) {
+				List<DiffHunk> hunks = DiffPatchParser.parse(file.get("patch").asText());
+
+				String filename = file.get("filename").asText();
+				assertFalse(hunks.isEmpty(), filename);
+				assertEquals(file.get("additions").asInt(),
+						hunks.stream().mapToInt(hunk -> hunk.getAddedLines().length).sum(), filename);
+				assertEquals(file.get("deletions").asInt(),
+						hunks.stream().mapToInt(hunk -> hunk.getRemovedLines().length).sum(), filename);
+			}
+		}
+	}
+
+	@Test
+	void skipsMalformedHunkHeaders() {
+		List<DiffHunk> hunks = DiffPatchParser.parse("@@ -x +1,2 @@\n+a\n+b\n@@ -5,1 +5,1 @@\n-c\n+d");
+
+		assertEquals(1, hunks.size());
+		assertArrayEquals(new int[]{5}, hunks.get(0).getAddedLines());
+	}
+
+	/**
+	 * Builds random patches from an edit script and checks every array against it
+	 */
+	@Test
+	void matchesGeneratedPatches() {
+		Random random = new Random(18);
+
+		for (int round = 0; round < 2_000; round++) {
+			StringBuilder patch = new StringBuilder();
+			List<int[]> expectedAdded = new ArrayList<>();
+			List<int[]> expectedRemoved = new ArrayList<>();
+			List<int[]> expectedOldToNew = new ArrayList<>();
+			List<int[]> gapChecks = new ArrayList<>();
+
+			int oldLine = 1 + random.nextInt(5);
+			int newLine = oldLine;
+			int hunkCount = 1 + random.nextInt(3);
+
+			for (int h = 0; h < hunkCount; h++) {
+				int oldStart = oldLine;
+				int newStart = newLine;
+				List<Integer> added = new ArrayList<>();
+				List<Integer> removed = new ArrayList<>();
+				List<Integer> oldToNew = new ArrayList<>();
+				StringBuilder body = new StringBuilder();
+
+				int operations = 1 + random.nextInt(30);
+				for (int i = 0; i < operations; i++) {
+					switch (random.nextInt(3)) {
+						case 0 -> {
+							body.append("+added ").append(i).append('\n');
+							added.add(newLine++);
+						}
+						case 1 -> {
+							body.append("-removed ").append(i).append('\n');
+							removed.add(oldLine++);
+							oldToNew.add(-1);
+						}
+						default -> {
+							body.append(" context ").append(i).append('\n');
+							oldToNew.add(newLine++);
+							oldLine++;
+						}
+					}
+				}
+
+				// Like git, an empty side names the line before it
+				int oldLines = oldLine - oldStart;
+				int newLines = newLine - newStart;
+				patch.append("@@ -").append(oldLines == 0 ? oldStart - 1 : oldStart).append(',').append(oldLines)
+						.append(" +").append(newLines == 0 ? newStart - 1 : newStart).append(',').append(newLines)
+						.append(" @@ void method").append(h).append("() {\n")
+						.append(body);
+				expectedAdded.add(toArray(added));
+				expectedRemoved.add(toArray(removed));
+				expectedOldToNew.add(toArray(oldToNew));
+
+				// Unchanged lines between hunks only shift
+				int gap = 1 + random.nextInt(10);
+				gapChecks.add(new int[]{oldLine, newLine});
+				oldLine += gap;
+				newLine += gap;
+			}
+
+			List<DiffHunk> hunks = DiffPatchParser.parse(patch);
+
+			assertEquals(hunkCount, hunks.size(), patch::toString);
+			for (int h = 0; h < hunkCount; h++) {
+				assertArrayEquals(expectedAdded.get(h), hunks.get(h).getAddedLines(), patch::toString);
+				assertArrayEquals(expectedRemoved.get(h), hunks.get(h).getRemovedLines(), patch::toString);
+				assertArrayEquals(expectedOldToNew.get(h), hunks.get(h).getOldToNew(), patch::toString);
+			}
+
+			ChangedFile file = ChangedFile.builder().filename("Generated.java").hunks(hunks).build();
+			for (int[] check : gapChecks) {
+				assertEquals(check[1], file.mapOldToNew(check[0]), patch::toString);
+			}
+		}
+	}
+
+	/**
+	 * Mutated corpus and real pull request patches must never make the parser throw
+	 */
+	@Test
+	void survivesMutatedPatches() throws IOException {
+		Random random = new Random(42);
+		String alphabet = "@@ -+,\\\n0123456789x";
+
+		List<String> patches = new ArrayList<>();
+		for (String name : CORPUS) {
+			patches.add(fixture(name));
+		}
+		for (String name : PULL_REQUEST_FILES) {
+			for (JsonNode file : new ObjectMapper().readTree(fixture(name))) {
+				patches.add(file.get("patch").asText());
+			}
+		}
+
+		for (String original : patches) {
+			for (int round = 0; round < 2_000; round++) {
+				StringBuilder mutated = new StringBuilder(original);
+				int mutations = 1 + random.nextInt(8);
+				for (int i = 0; i < mutations && mutated.length() > 0; i++) {
+					int position = random.nextInt(mutated.length());
+					char c = alphabet.charAt(random.nextInt(alphabet.length()));
+					switch (random.nextInt(3)) {
+						case 0 -> mutated.insert(position, c);
+						case 1 -> mutated.deleteCharAt(position);
+						default -> mutated.setCharAt(position, c);
+					}
+				}
+
+				List<DiffHunk> hunks = assertDoesNotThrow(() -> DiffPatchParser.parse(mutated), mutated::toString);
+				for (DiffHunk hunk : hunks) {
+					assertTrue(isAscending(hunk.getAddedLines()), mutated::toString);
+					assertTrue(isAscending(hunk.getRemovedLines()), mutated::toString);
+				}
+			}
+		}
+	}
+
+	private static int[] toArray(List<Integer> values) {
+		return values.stream().mapToInt(Integer::intValue).toArray();
+	}
+
+	private static boolean isAscending(int[] values) {
+		for (int i = 1; i < values.length; i++) {
+			if (values[i] <= values[i - 1]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static String fixture(String name) throws IOException {
+		try (InputStream in = DiffPatchParserTests.class.getResourceAsStream("/diffs/" + name)) {
+			assertNotNull(in, "missing fixture " + name);
+			return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+		}
+	}
+
+}
@@ -0,0 +1,160 @@
+package com.codereview.aicodereviewer.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.client.ExpectedCount;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.test.web.client.ResponseCreator;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.*;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.*;
+
+class GitHubAppAuthServiceTests {
+
+	private static final String ACCESS_TOKENS = "https://api.github.com/app/installations/42/access_tokens";
+
+	private MockRestServiceServer server;
+	private GitHubAppAuthService authService;
+
+	@BeforeEach
+	void setUp() {
+		RestTemplate restTemplate = new RestTemplate();
+		server = MockRestServiceServer.bindTo(restTemplate).build();
+		authService = new FixedJwtAuthService(restTemplate);
+		ReflectionTestUtils.setField(authService, "refreshAheadSeconds", 600L);
+		ReflectionTestUtils.setField(authService, "idleSeconds", 3600L);
+		authService.startRefresher();
+	}
+
+	@AfterEach
+	void tearDown() {
+		authService.stopRefresher();
+	}
+
+	@Test
+	void concurrentCallersShareOneMint() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		server.expect(ExpectedCount.once(), requestTo(ACCESS_TOKENS))
+				.andExpect(method(HttpMethod.POST))
+				.andExpect(header("Authorization", "Bearer jwt"))
+				.andRespond(blockedUntil(release, token("t1", 60)));
+
+		ExecutorService callers = Executors.newFixedThreadPool(2);
+		try {
+			Future<String> first = callers.submit(() -> authService.getInstallationToken(42));
+			Future<String> second = callers.submit(() -> authService.getInstallationToken(42));
+			// Whichever caller lost the race waits for the other's mint
+			awaitStat("coalescedWaits", 1L);
+			release.countDown();
+
+			assertEquals("t1", first.get(5, TimeUnit.SECONDS));
+			assertEquals("t1", second.get(5, TimeUnit.SECONDS));
+		} finally {
+			callers.shutdownNow();
+		}
+		assertEquals(1L, authService.getStats().get("tokenMints"));
+		server.verify();
+	}
+
+	@Test
+	void renewsTokenInUseAheadOfExpiry() throws InterruptedException {
+		server.expect(requestTo(ACCESS_TOKENS)).andRespond(token("t1", 8));
+		server.expect(requestTo(ACCESS_TOKENS)).andRespond(token("t2", 60));
+
+		assertEquals("t1", authService.getInstallationToken(42));
+		// Cache hit inside the refresh-ahead window: served from cache, renewed off the request path
+		assertEquals("t1", authService.getInstallationToken(42));
+		awaitStat("backgroundRefreshes", 1L);
+
+		assertEquals("t2", authService.getInstallationToken(42));
+		assertEquals(2L, authService.getStats().get("tokenHits"));
+		server.verify();
+	}
+
+	@Test
+	void backgroundRenewalDoesNotKeepIdleTokenAlive() throws InterruptedException {
+		ReflectionTestUtils.setField(authService, "idleSeconds", 1L);
+		CountDownLatch release = new CountDownLatch(1);
+		server.expect(requestTo(ACCESS_TOKENS)).andRespond(token("t1", 8));
+		server.expect(requestTo(ACCESS_TOKENS)).andRespond(blockedUntil(release, token("t2", 60)));
+
+		authService.getInstallationToken(42);
+		authService.getInstallationToken(42);
+		// Nobody asks for a token while the renewal is in flight
+		Thread.sleep(1100);
+		release.countDown();
+		awaitStat("backgroundRefreshes", 1L);
+
+		authService.refreshExpiringTokens();
+
+		assertEquals(0, authService.getStats().get("cachedInstallations"));
+		server.verify();
+	}
+
+	@Test
+	void doesNotHandOutTokenThatCouldExpireDuringRateLimitRetries() {
+		// Up to two minutes of waiting before each of three attempts, on top of a minute for the request itself
+		server.expect(requestTo(ACCESS_TOKENS)).andRespond(token("t1", 4));
+		server.expect(requestTo(ACCESS_TOKENS)).andRespond(token("t2", 60));
+
+		assertEquals("t1", authService.getInstallationToken(42));
+		assertEquals("t2", authService.getInstallationToken(42));
+		assertEquals(0L, authService.getStats().get("tokenHits"));
+		server.verify();
+	}
+
+	private void awaitStat(String name, Object value) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (!authService.getStats().get(name).equals(value) && System.nanoTime() < deadline) {
+			Thread.sleep(5);
+		}
+		assertEquals(value, authService.getStats().get(name));
+	}
+
+	private static ResponseCreator token(String token, long minutesValid) {
+		Instant expiresAt = Instant.now().plus(minutesValid, ChronoUnit.MINUTES).truncatedTo(ChronoUnit.SECONDS);
+		return withSuccess("{\"token\": \"" + token + "\", \"expires_at\": \"" + expiresAt + "\"}",
+				MediaType.APPLICATION_JSON);
+	}
+
+	private static ResponseCreator blockedUntil(CountDownLatch release, ResponseCreator response) {
+		return request -> {
+			try {
+				release.await(5, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return response.createResponse(request);
+		};
+	}
+
+	/**
+	 * Auth service with a fixed app JWT, so no private key is needed
+	 */
+	private static class FixedJwtAuthService extends GitHubAppAuthService {
+
+		FixedJwtAuthService(RestTemplate restTemplate) {
+			super(restTemplate, new GitHubRateLimitGovernor("", 120000, 2, 100, 20, 60));
+		}
+
+		@Override
+		public synchronized String getJWT() {
+			return "jwt";
+		}
+	}
+
+}
@@ -0,0 +1,264 @@
+package com.codereview.aicodereviewer.service;
+
+import com.codereview.aicodereviewer.model.CodeIssue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.client.ExpectedCount;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.*;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.*;
+
+class GitHubCommentServiceTests {
+
+	private static final String REVIEWS = "https://api.github.com/repos/acme/shop/pulls/7/reviews";
+	private static final String COMMENTS = "https://api.github.com/repos/acme/shop/pulls/7/comments";
+	private static final String ISSUE_COMMENTS = "https://api.github.com/repos/acme/shop/issues/7/comments";
+	private static final String GRAPHQL = "https://api.github.com/graphql";
+
+	private MockRestServiceServer server;
+	private GitHubCommentService commentService;
+
+	@BeforeEach
+	void setUp() {
+		RestTemplate restTemplate = new RestTemplate();
+		server = MockRestServiceServer.bindTo(restTemplate).build();
+		commentService = new GitHubCommentService(null, restTemplate);
+		ReflectionTestUtils.setField(commentService, "maxCommentsPerReview", 2);
+	}
+
+	@Test
+	void submitsCommentsAndSummaryAsReviews() {
+		server.expect(requestTo(REVIEWS))
+				.andExpect(method(HttpMethod.POST))
+				.andExpect(jsonPath("$.comments.length()").value(2))
+				.andExpect(jsonPath("$.body").doesNotExist())
+				.andRespond(withSuccess("{}", MediaType.APPLICATION_JSON));
+		server.expect(requestTo(REVIEWS))
+				.andExpect(jsonPath("$.event").value("COMMENT"))
+				.andExpect(jsonPath("$.comments[0].path").value("src/Shop.java"))
+				.andExpect(jsonPath("$.comments[0].line").value(5))
+				.andExpect(jsonPath("$.body").value("Summary"))
+				.andRespond(withSuccess("{}", MediaType.APPLICATION_JSON));
+
+		GitHubCommentService.ReviewSubmission submission =
+				commentService.submitReview("acme", "shop", 7, "abc123", "Summary", issues(3));
+
+		server.verify();
+		assertEquals(3, submission.commentsPosted());
+		assertTrue(submission.summaryPosted());
+		assertEquals(2L, commentService.getStats().get("reviewsSubmitted"));
+	}
+
+	@Test
+	void fallsBackToSingleCommentsWhenReviewIsRejected() {
+		server.expect(requestTo(REVIEWS)).andRespond(withStatus(HttpStatus.UNPROCESSABLE_ENTITY));
+		server.expect(ExpectedCount.times(2), requestTo(COMMENTS))
+				.andRespond(withSuccess("{}", MediaType.APPLICATION_JSON));
+		server.expect(requestTo(ISSUE_COMMENTS))
+				.andExpect(jsonPath("$.body").value("Summary"))
+				.andRespond(withSuccess("{}", MediaType.APPLICATION_JSON));
+
+		GitHubCommentService.ReviewSubmission submission =
+				commentService.submitReview("acme", "shop", 7, "abc123", "Summary", issues(2));
+
+		server.verify();
+		assertEquals(2, submission.commentsPosted());
+		assertTrue(submission.summaryPosted());
+		assertEquals(1L, commentService.getStats().get("fallbackReviews"));
+	}
+
+	@Test
+	void postsOnlyNewFindingsAndEditsSummaryInPlace() {
+		List<CodeIssue> issues = issues(2);
+		issues.get(0).setFingerprint("aaaa");
+		issues.get(1).setFingerprint("bbbb");
+
+		server.expect(requestTo("https://api.github.com/user"))
+				.andRespond(withSuccess("{\"login\": \"review-bot\"}", MediaType.APPLICATION_JSON));
+		server.expect(requestTo(COMMENTS + "?per_page=100"))
+				.andExpect(method(HttpMethod.GET))
+				.andRespond(withSuccess("""
+						[{"id": 1, "node_id": "C1", "path": "src/Shop.java", "user": {"login": "review-bot"},
+						  "body": "old\\n<!-- ai-code-reviewer:fingerprint=aaaa -->"},
+						 {"id": 2, "node_id": "C2", "path": "src/Shop.java", "user": {"login": "review-bot"},
+						  "body": "gone\\n<!-- ai-code-reviewer:fingerprint=cccc -->"},
+						 {"id": 3, "node_id": "C3", "path": "src/Other.java", "user": {"login": "review-bot"},
+						  "body": "not reviewed\\n<!-- ai-code-reviewer:fingerprint=dddd -->"},
+						 {"id": 4, "node_id": "C4", "path": "src/Shop.java", "user": {"login": "mallory"},
+						  "body": "quoted\\n<!-- ai-code-reviewer:fingerprint=bbbb -->"},
+						 {"id": 5, "node_id": "C5", "path": "src/Shop.java", "user": {"login": "mallory"},
+						  "body": "quoted\\n<!-- ai-code-reviewer:fingerprint=eeee -->"}]
+						""", MediaType.APPLICATION_JSON));
+		server.expect(requestTo(ISSUE_COMMENTS + "?per_page=100"))
+				.andRespond(withSuccess("""
+						[{"id": 99, "user": {"login": "review-bot"},
+						  "body": "## Code Review Summary\\n<!-- ai-code-reviewer:summary -->"},
+						 {"id": 100, "user": {"login": "mallory"},
+						  "body": "quoted\\n<!-- ai-code-reviewer:summary -->"}]
+						""", MediaType.APPLICATION_JSON));
+		server.expect(requestTo(REVIEWS))
+				.andExpect(jsonPath("$.comments.length()").value(1))
+				.andExpect(jsonPath("$.comments[0].line").value(4))
+				.andRespond(withSuccess("{}", MediaType.APPLICATION_JSON));
+		server.expect(requestTo(GRAPHQL))
+				.andExpect(jsonPath("$.variables.id").value("C2"))
+				.andRespond(withSuccess("{\"data\": {}}", MediaType.APPLICATION_JSON));
+		server.expect(requestTo("https://api.github.com/repos/acme/shop/issues/comments/99"))
+				.andExpect(method(HttpMethod.PATCH))
+				.andRespond(withSuccess("{}", MediaType.APPLICATION_JSON));
+
+		GitHubCommentService.ReviewSubmission submission = commentService.publishReview(
+				"acme", "shop", 7, "abc123", "Summary", issues, Set.of("src/Shop.java"));
+
+		server.verify();
+		assertEquals(1, submission.commentsPosted());
+		assertTrue(submission.summaryPosted());
+		assertEquals(1L, commentService.getStats().get("duplicatesSkipped"));
+		assertEquals(1L, commentService.getStats().get("staleMinimized"));
+	}
+
+	@Test
+	void recognisesAppCommentsByBotLoginOrApp() {
+		RestTemplate restTemplate = new RestTemplate();
+		server = MockRestServiceServer.bindTo(restTemplate).build();
+		commentService = new GitHubCommentService(new FixedAppAuthService("ai-reviewer[bot]", "123"), restTemplate);
+		List<CodeIssue> issues = issues(1);
+		issues.get(0).setFingerprint("aaaa");
+
+		server.expect(requestTo(COMMENTS + "?per_page=100"))
+				.andExpect(header("Authorization", "Bearer installation-token"))
+				.andRespond(withSuccess("""
+						[{"id": 1, "node_id": "C1", "path": "src/Shop.java", "user": {"login": "ai-reviewer[bot]"},
+						  "body": "old\\n<!-- ai-code-reviewer:fingerprint=aaaa -->"},
+						 {"id": 2, "node_id": "C2", "path": "src/Shop.java", "user": {"login": "other-app[bot]"},
+						  "performed_via_github_app": {"id": 456},
+						  "body": "quoted\\n<!-- ai-code-reviewer:fingerprint=cccc -->"}]
+						""", MediaType.APPLICATION_JSON));
+		server.expect(requestTo(ISSUE_COMMENTS + "?per_page=100"))
+				.andRespond(withSuccess("""
+						[{"id": 99, "user": {"login": "ai-reviewer"}, "performed_via_github_app": {"id": 123},
+						  "body": "## Code Review Summary\\n<!-- ai-code-reviewer:summary -->"}]
+						""", MediaType.APPLICATION_JSON));
+		server.expect(requestTo("https://api.github.com/repos/acme/shop/issues/comments/99"))
+				.andExpect(method(HttpMethod.PATCH))
+				.andRespond(withSuccess("{}", MediaType.APPLICATION_JSON));
+
+		ReviewContext context = new ReviewContext("acme", "shop", 7, "abc123", 42L, () -> "installation-token", null, null);
+		GitHubCommentService.ReviewSubmission submission = context.call(() -> commentService.publishReview(
+				"acme", "shop", 7, "abc123", "Summary", issues, Set.of("src/Shop.java")));
+
+		server.verify();
+		assertEquals(0, submission.commentsPosted());
+		assertTrue(submission.summaryPosted());
+		assertEquals(0L, commentService.getStats().get("staleMinimized"));
+	}
+
+	@Test
+	void streamsAnnotationsIntoCheckRunInBatchesOfFifty() {
+		String checkRuns = "https://api.github.com/repos/acme/shop/check-runs";
+		server.expect(requestTo(checkRuns))
+				.andExpect(method(HttpMethod.POST))
+				.andExpect(jsonPath("$.status").value("in_progress"))
+				.andRespond(withSuccess("{\"id\": 5}", MediaType.APPLICATION_JSON));
+		server.expect(requestTo(checkRuns + "/5"))
+				.andExpect(method(HttpMethod.PATCH))
+				.andExpect(jsonPath("$.output.annotations.length()").value(50))
+				.andExpect(jsonPath("$.output.annotations[0].annotation_level").value("warning"))
+				.andRespond(withSuccess("{}", MediaType.APPLICATION_JSON));
+		server.expect(requestTo(checkRuns + "/5"))
+				.andExpect(jsonPath("$.output.annotations.length()").value(1))
+				.andRespond(withSuccess("{}", MediaType.APPLICATION_JSON));
+		server.expect(requestTo(checkRuns + "/5"))
+				.andExpect(jsonPath("$.status").value("completed"))
+				.andExpect(jsonPath("$.conclusion").value("neutral"))
+				.andRespond(withSuccess("{}", MediaType.APPLICATION_JSON));
+
+		GitHubCommentService.CheckRun checkRun = commentService.startCheckRun("acme", "shop", "abc123");
+		assertNotNull(checkRun);
+		List<CodeIssue> findings = issues(51);
+		for (List<CodeIssue> batch : GitHubCommentService.annotationBatches(findings)) {
+			assertTrue(commentService.addAnnotations(checkRun, batch));
+		}
+
+		assertTrue(commentService.completeCheckRun(checkRun, findings, "Summary"));
+		server.verify();
+		assertEquals(51L, commentService.getStats().get("annotationsPosted"));
+	}
+
+	@Test
+	void concludesFromFindingsEvenWhenAnnotationsWereNotWritten() {
+		String checkRun = "https://api.github.com/repos/acme/shop/check-runs/5";
+		server.expect(requestTo(checkRun))
+				.andExpect(jsonPath("$.output.annotations.length()").value(1))
+				.andRespond(withServerError());
+		server.expect(requestTo(checkRun))
+				.andExpect(jsonPath("$.status").value("completed"))
+				.andExpect(jsonPath("$.conclusion").value("failure"))
+				.andExpect(jsonPath("$.output.title").value("2 issues (1 errors), 0 annotated"))
+				.andRespond(withSuccess("{}", MediaType.APPLICATION_JSON));
+
+		List<CodeIssue> findings = issues(2);
+		findings.get(1).setSeverity("ERROR");
+		GitHubCommentService.CheckRun run = new GitHubCommentService.CheckRun("acme", "shop", 5);
+
+		assertFalse(commentService.addAnnotations(run, findings.subList(1, 2)));
+		assertTrue(commentService.completeCheckRun(run, findings, "Summary"));
+		server.verify();
+	}
+
+	@Test
+	void mapsSeverityToAnnotationLevel() {
+		assertEquals("failure", GitHubCommentService.annotationLevelOf(CodeIssue.builder().severity("ERROR").build()));
+		assertEquals("warning", GitHubCommentService.annotationLevelOf(CodeIssue.builder().severity("warning").build()));
+		assertEquals("notice", GitHubCommentService.annotationLevelOf(CodeIssue.builder().severity("info").build()));
+	}
+
+	/**
+	 * App identity without a private key or a call to GitHub
+	 */
+	private static class FixedAppAuthService extends GitHubAppAuthService {
+
+		private final String botLogin;
+		private final String appId;
+
+		FixedAppAuthService(String botLogin, String appId) {
+			super(null, new GitHubRateLimitGovernor("", 120000, 2, 100, 20, 60));
+			this.botLogin = botLogin;
+			this.appId = appId;
+		}
+
+		@Override
+		public String getBotLogin() {
+			return botLogin;
+		}
+
+		@Override
+		public String getAppId() {
+			return appId;
+		}
+	}
+
+	private static List<CodeIssue> issues(int count) {
+		return IntStream.range(0, count)
+				.mapToObj(i -> CodeIssue.builder()
+						.fileName("src/Shop.java")
+						.lineNumber(3 + i)
+						.severity("warning")
+						.description("Issue " + i)
+						.build())
+				.collect(Collectors.toList());
+	}
+
+}
@@ -0,0 +1,156 @@
+package com.codereview.aicodereviewer.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.test.web.client.ResponseCreator;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.*;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.*;
+
+class GitHubConditionalCacheTests {
+
+	private static final String PULL = "https://api.github.com/repos/acme/shop/pulls/7";
+	private static final String ETAG = "\"abc\"";
+
+	private final GitHubRateLimitGovernor governor = new GitHubRateLimitGovernor("", 120000, 2, 0, 20, 60);
+	private final RestTemplate restTemplate = new RestTemplate();
+	private GitHubConditionalCache cache;
+	private MockRestServiceServer server;
+
+	@Test
+	void revalidatesWithEtagAndServesNotModifiedFromCache() {
+		setUp(1 << 20);
+		server.expect(requestTo(PULL))
+				.andExpect(headerDoesNotExist(HttpHeaders.IF_NONE_MATCH))
+				.andRespond(withSuccess("{\"number\": 7}", MediaType.APPLICATION_JSON).header(HttpHeaders.ETAG, ETAG));
+		server.expect(requestTo(PULL))
+				.andExpect(header(HttpHeaders.IF_NONE_MATCH, ETAG))
+				.andRespond(withStatus(HttpStatus.NOT_MODIFIED));
+
+		get(PULL, "installation-1");
+		ResponseEntity<String> revalidated = get(PULL, "installation-1");
+
+		server.verify();
+		assertEquals(HttpStatus.OK, revalidated.getStatusCode());
+		assertEquals("{\"number\": 7}", revalidated.getBody());
+		assertEquals(1L, cache.getStats().get("hits"));
+	}
+
+	@Test
+	void revalidatesWithLastModifiedWhenThereIsNoEtag() {
+		setUp(1 << 20);
+		String lastModified = "Tue, 13 Oct 2026 08:00:00 GMT";
+		server.expect(requestTo(PULL))
+				.andRespond(withSuccess("{}", MediaType.APPLICATION_JSON).header(HttpHeaders.LAST_MODIFIED, lastModified));
+		server.expect(requestTo(PULL))
+				.andExpect(headerDoesNotExist(HttpHeaders.IF_NONE_MATCH))
+				.andExpect(header(HttpHeaders.IF_MODIFIED_SINCE, lastModified))
+				.andRespond(withStatus(HttpStatus.NOT_MODIFIED));
+
+		get(PULL, "installation-1");
+		get(PULL, "installation-1");
+
+		server.verify();
+	}
+
+	@Test
+	void keepsInstallationsApartAndSkipsUnattributedCredentials() {
+		setUp(1 << 20);
+		governor.bindInstallationToken("installation-2", 2);
+		server.expect(requestTo(PULL)).andRespond(tagged("{}"));
+		server.expect(requestTo(PULL))
+				.andExpect(headerDoesNotExist(HttpHeaders.IF_NONE_MATCH))
+				.andRespond(tagged("{}"));
+
+		get(PULL, "installation-1");
+		get(PULL, "installation-2");
+		server.verify();
+
+		// An unbound token or the app JWT could belong to anyone: never cached
+		for (String token : List.of("unbound-token", "header.payload.signature")) {
+			server.reset();
+			server.expect(requestTo(PULL)).andRespond(tagged("{}"));
+			server.expect(requestTo(PULL))
+					.andExpect(headerDoesNotExist(HttpHeaders.IF_NONE_MATCH))
+					.andRespond(tagged("{}"));
+
+			get(PULL, token);
+			get(PULL, token);
+			server.verify();
+		}
+		assertEquals(2, cache.getStats().get("entries"));
+	}
+
+	@Test
+	void evictsLeastRecentlyUsedEntriesBeyondMaxBytes() {
+		// Ten bytes per entry at most, eight entries fit
+		setUp(80);
+		for (int i = 1; i <= 8; i++) {
+			server.expect(requestTo(PULL + "/" + i)).andRespond(tagged("0123456789"));
+		}
+		server.expect(requestTo(PULL + "/1"))
+				.andExpect(header(HttpHeaders.IF_NONE_MATCH, ETAG))
+				.andRespond(withStatus(HttpStatus.NOT_MODIFIED));
+		server.expect(requestTo(PULL + "/9")).andRespond(tagged("0123456789"));
+		server.expect(requestTo(PULL + "/2"))
+				.andExpect(headerDoesNotExist(HttpHeaders.IF_NONE_MATCH))
+				.andRespond(tagged("0123456789"));
+
+		for (int i = 1; i <= 8; i++) {
+			get(PULL + "/" + i, "installation-1");
+		}
+		get(PULL + "/1", "installation-1");
+		get(PULL + "/9", "installation-1");
+		get(PULL + "/2", "installation-1");
+
+		server.verify();
+		assertEquals(80L, cache.getStats().get("bytes"));
+		assertEquals(2L, cache.getStats().get("evictions"));
+	}
+
+	@Test
+	void leavesBlobsAndTarballsToTheirOwnStores() {
+		setUp(1 << 20);
+		for (String url : List.of("https://api.github.com/repos/acme/shop/git/blobs/0123abcd",
+				"https://api.github.com/repos/acme/shop/tarball/abc123")) {
+			server.expect(requestTo(url)).andRespond(tagged("{}"));
+			server.expect(requestTo(url))
+					.andExpect(headerDoesNotExist(HttpHeaders.IF_NONE_MATCH))
+					.andRespond(tagged("{}"));
+
+			get(url, "installation-1");
+			get(url, "installation-1");
+		}
+
+		server.verify();
+		assertEquals(0, cache.getStats().get("entries"));
+	}
+
+	private void setUp(long maxBytes) {
+		governor.bindInstallationToken("installation-1", 1);
+		cache = new GitHubConditionalCache(governor, maxBytes);
+		restTemplate.setInterceptors(List.of(cache, governor));
+		server = MockRestServiceServer.bindTo(restTemplate).build();
+	}
+
+	private ResponseEntity<String> get(String url, String token) {
+		HttpHeaders headers = new HttpHeaders();
+		headers.setBearerAuth(token);
+		return restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), String.class);
+	}
+
+	private static ResponseCreator tagged(String body) {
+		return withSuccess(body, MediaType.APPLICATION_JSON).header(HttpHeaders.ETAG, ETAG);
+	}
+
+}
@@ -0,0 +1,149 @@
+package com.codereview.aicodereviewer.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.web.client.ExpectedCount;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.*;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.*;
+
+class GitHubRateLimitGovernorTests {
+
+	private static final String URL = "https://api.github.com/repos/acme/shop/pulls/7";
+
+	private final RestTemplate restTemplate = new RestTemplate();
+	private MockRestServiceServer server;
+	private GitHubRateLimitGovernor governor;
+
+	@Test
+	void waitsOutRetryAfterAndRetries() {
+		setUp(5000, 20);
+		server.expect(requestTo(URL))
+				.andRespond(withStatus(HttpStatus.TOO_MANY_REQUESTS).header("Retry-After", "1"));
+		server.expect(requestTo(URL)).andRespond(withSuccess());
+
+		long start = System.nanoTime();
+		restTemplate.getForObject(URL, String.class);
+
+		server.verify();
+		assertTrue(elapsedMillis(start) >= 900);
+		assertEquals(1L, governor.getStats().get("retried"));
+	}
+
+	@Test
+	void blocksScopeUntilExhaustedBudgetResets() {
+		setUp(5000, 20);
+		long resetAt = Instant.now().getEpochSecond() + 2;
+		server.expect(requestTo(URL)).andRespond(withStatus(HttpStatus.FORBIDDEN)
+				.header("X-RateLimit-Remaining", "0")
+				.header("X-RateLimit-Reset", String.valueOf(resetAt)));
+		server.expect(requestTo(URL)).andRespond(withSuccess());
+
+		restTemplate.getForObject(URL, String.class);
+
+		server.verify();
+		assertTrue(System.currentTimeMillis() >= resetAt * 1000);
+		assertEquals(1L, governor.getStats().get("rateLimited"));
+	}
+
+	@Test
+	void failsFastInsteadOfWaitingPastMaxWait() {
+		setUp(1000, 20);
+		server.expect(ExpectedCount.once(), requestTo(URL)).andRespond(withStatus(HttpStatus.FORBIDDEN)
+				.header("X-RateLimit-Remaining", "0")
+				.header("X-RateLimit-Reset", String.valueOf(Instant.now().getEpochSecond() + 3600)));
+
+		// Budget resets in an hour: not retried, and later requests of the scope are not sent
+		assertThrows(HttpClientErrorException.class, () -> restTemplate.getForObject(URL, String.class));
+		long start = System.nanoTime();
+		assertThrows(ResourceAccessException.class, () -> restTemplate.getForObject(URL, String.class));
+
+		server.verify();
+		assertTrue(elapsedMillis(start) < 500);
+		assertEquals(1L, governor.getStats().get("refused"));
+	}
+
+	@Test
+	void pacesRequestsBelowLowWatermark() {
+		setUp(5000, 20);
+		long resetAt = Instant.now().getEpochSecond() + 2;
+		server.expect(ExpectedCount.times(2), requestTo(URL)).andRespond(withSuccess()
+				.header("X-RateLimit-Remaining", "10")
+				.header("X-RateLimit-Reset", String.valueOf(resetAt)));
+
+		restTemplate.getForObject(URL, String.class);
+		restTemplate.getForObject(URL, String.class);
+
+		server.verify();
+		assertEquals(1L, governor.getStats().get("throttled"));
+	}
+
+	@Test
+	void refusesRequestThatPacingWouldHoldPastMaxWait() {
+		setUp(1000, 20);
+		server.expect(ExpectedCount.once(), requestTo(URL)).andRespond(withSuccess()
+				.header("X-RateLimit-Remaining", "1")
+				.header("X-RateLimit-Reset", String.valueOf(Instant.now().getEpochSecond() + 3600)));
+
+		restTemplate.getForObject(URL, String.class);
+		// The last request of the window would be spread over the whole hour
+		assertThrows(ResourceAccessException.class, () -> restTemplate.getForObject(URL, String.class));
+
+		server.verify();
+		assertEquals(1L, governor.getStats().get("refused"));
+	}
+
+	@Test
+	void spacesContentCreationWithTokenBucket() {
+		setUp(5000, 2);
+		server.expect(ExpectedCount.times(3), requestTo(URL))
+				.andExpect(method(HttpMethod.POST))
+				.andRespond(withSuccess());
+
+		long start = System.nanoTime();
+		for (int i = 0; i < 3; i++) {
+			restTemplate.postForObject(URL, "{}", String.class);
+		}
+
+		server.verify();
+		// Burst of two, then one request per second
+		assertTrue(elapsedMillis(start) >= 900);
+		assertEquals(1L, governor.getStats().get("throttled"));
+	}
+
+	@Test
+	void stopsWaitingOnceReviewPassesItsDeadline() {
+		setUp(60000, 20);
+		server.expect(ExpectedCount.once(), requestTo(URL))
+				.andRespond(withStatus(HttpStatus.TOO_MANY_REQUESTS).header("Retry-After", "30"));
+
+		ReviewContext context = new ReviewContext("acme", "shop", 7, "abc123", null, null,
+				Instant.now().plusMillis(200), null);
+		long start = System.nanoTime();
+		assertThrows(ReviewCancelledException.class,
+				() -> context.call(() -> restTemplate.getForObject(URL, String.class)));
+
+		server.verify();
+		assertTrue(elapsedMillis(start) < 5000);
+	}
+
+	private void setUp(long maxWaitMillis, int contentBurst) {
+		governor = new GitHubRateLimitGovernor("", maxWaitMillis, 2, 100, contentBurst, 60);
+		restTemplate.getInterceptors().add(governor);
+		server = MockRestServiceServer.bindTo(restTemplate).build();
+	}
+
+	private static long elapsedMillis(long startNanos) {
+		return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+	}
+
+}
@@ -0,0 +1,232 @@
+package com.codereview.aicodereviewer.service;
+
+import com.codereview.aicodereviewer.model.ChangedFile;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.ExpectedCount;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.test.web.client.ResponseCreator;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.*;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.*;
+
+class GitHubServiceTests {
+
+	private static final String FILES = "https://api.github.com/repos/acme/shop/pulls/7/files?per_page=100";
+
+	@TempDir
+	Path blobs;
+
+	private MockRestServiceServer server;
+	private BlobStore blobStore;
+	private GitHubService gitHubService;
+
+	@BeforeEach
+	void setUp() {
+		RestTemplate restTemplate = new RestTemplate();
+		server = MockRestServiceServer.bindTo(restTemplate).build();
+		blobStore = new BlobStore(true, blobs.toString(), 1 << 20);
+		gitHubService = new GitHubService(null, blobStore, new ObjectMapper(), restTemplate);
+	}
+
+	@AfterEach
+	void tearDown() {
+		gitHubService.stopPagePrefetcher();
+	}
+
+	@Test
+	void followsNextLinksAndPrefetchesWhileAPageIsConsumed() {
+		CountDownLatch secondRequested = new CountDownLatch(1);
+		server.expect(requestTo(FILES))
+				.andExpect(method(HttpMethod.GET))
+				.andRespond(page(FILES + "&page=2", "A.java", "B.java"));
+		server.expect(requestTo(FILES + "&page=2"))
+				.andRespond(signalling(secondRequested, page(FILES + "&page=3", "C.java")));
+		server.expect(requestTo(FILES + "&page=3"))
+				.andRespond(page(null, "D.java"));
+
+		List<String> consumed = new ArrayList<>();
+		boolean[] prefetched = new boolean[1];
+		int listed = gitHubService.forEachChangedFilesPage("acme", "shop", 7, files -> {
+			if (consumed.isEmpty()) {
+				// Page 2 is requested while page 1 is still being consumed
+				prefetched[0] = await(secondRequested);
+			}
+			files.forEach(file -> consumed.add(file.getFilename()));
+		});
+
+		server.verify();
+		assertTrue(prefetched[0]);
+		assertEquals(4, listed);
+		assertEquals(List.of("A.java", "B.java", "C.java", "D.java"), consumed);
+	}
+
+	@Test
+	void parsesHunksOfEachListedFile() {
+		server.expect(requestTo(FILES)).andRespond(withSuccess("""
+				[{"filename": "src/Shop.java", "status": "modified", "sha": "abc", "additions": 2, "deletions": 1,
+				  "patch": "@@ -3,2 +3,3 @@ class Shop {\\n int a;\\n-int b;\\n+int c;\\n+int d;"}]
+				""", MediaType.APPLICATION_JSON));
+
+		List<ChangedFile> files = new ArrayList<>();
+		gitHubService.forEachChangedFilesPage("acme", "shop", 7, files::addAll);
+
+		assertEquals(1, files.size());
+		assertEquals("abc", files.get(0).getBlobSha());
+		assertEquals(List.of(4, 5), files.get(0).getChangedLines());
+	}
+
+	@Test
+	void stopsListingWhenConsumerFails() {
+		server.expect(requestTo(FILES)).andRespond(page(FILES + "&page=2", "A.java"));
+		server.expect(requestTo(FILES + "&page=2")).andRespond(page(null, "B.java"));
+
+		List<String> consumed = new ArrayList<>();
+		assertThrows(ReviewCancelledException.class, () -> gitHubService.forEachChangedFilesPage("acme", "shop", 7, files -> {
+			files.forEach(file -> consumed.add(file.getFilename()));
+			throw new ReviewCancelledException("superseded");
+		}));
+
+		assertEquals(List.of("A.java"), consumed);
+	}
+
+	@Test
+	void stopsListingChangedLinesOnceTheFileIsFound() {
+		server.expect(requestTo(FILES)).andRespond(withSuccess("""
+				[{"filename": "src/Shop.java", "status": "modified",
+				  "patch": "@@ -3,2 +3,3 @@ class Shop {\\n int a;\\n-int b;\\n+int c;\\n+int d;"}]
+				""", MediaType.APPLICATION_JSON).header(HttpHeaders.LINK, "<" + FILES + "&page=2>; rel=\"next\""));
+		// Page 2 may already be prefetched; page 3 must never be requested
+		server.expect(ExpectedCount.between(0, 1), requestTo(FILES + "&page=2"))
+				.andRespond(page(FILES + "&page=3", "B.java"));
+
+		assertEquals(List.of(4, 5), gitHubService.getChangedLines("acme", "shop", 7, "src/Shop.java"));
+
+		server.verify();
+	}
+
+	@Test
+	void readsRequestedFilesFromTarballWithoutTopLevelDirectory() throws IOException {
+		byte[] shop = "class Shop {}".getBytes(StandardCharsets.UTF_8);
+		byte[] cart = "class Cart {}".getBytes(StandardCharsets.UTF_8);
+		byte[] tarball = tarball(Map.of(
+				"src/Shop.java", shop,
+				"src/Cart.java", cart,
+				"README.md", "# shop".getBytes(StandardCharsets.UTF_8)));
+		server.expect(requestTo("https://api.github.com/repos/acme/shop/tarball/abc123"))
+				.andRespond(withSuccess(tarball, MediaType.APPLICATION_OCTET_STREAM));
+
+		Map<String, String> blobShas = new HashMap<>();
+		blobShas.put("src/Shop.java", BlobStore.gitBlobSha(shop));
+		blobShas.put("src/Cart.java", null);
+		Map<String, String> contents = gitHubService.getContentsFromTarball("acme", "shop", "abc123", blobShas);
+
+		server.verify();
+		assertEquals(Map.of("src/Shop.java", "class Shop {}", "src/Cart.java", "class Cart {}"), contents);
+		// Files with a known blob SHA are kept for later reviews
+		assertEquals("class Shop {}", blobStore.get(BlobStore.gitBlobSha(shop)));
+		assertNull(blobStore.get(BlobStore.gitBlobSha(cart)));
+	}
+
+	@Test
+	void stopsReadingTarballOnceAllFilesAreFound() throws IOException {
+		byte[] filler = new byte[2 << 20];
+		new Random(7).nextBytes(filler);
+		Map<String, byte[]> files = new LinkedHashMap<>();
+		files.put("src/Shop.java", "class Shop {}".getBytes(StandardCharsets.UTF_8));
+		files.put("assets/filler.bin", filler);
+		byte[] tarball = tarball(files);
+
+		int[] read = new int[1];
+		InputStream body = new FilterInputStream(new ByteArrayInputStream(tarball)) {
+			@Override
+			public int read(byte[] buffer, int offset, int length) throws IOException {
+				int count = super.read(buffer, offset, length);
+				read[0] += Math.max(0, count);
+				return count;
+			}
+		};
+		Map<String, String> contents = gitHubService.readTarball(body, Map.of("src/Shop.java", "unknown"));
+
+		assertEquals(Set.of("src/Shop.java"), contents.keySet());
+		assertTrue(read[0] < tarball.length / 4, "read " + read[0] + " of " + tarball.length + " bytes");
+	}
+
+	/**
+	 * Gzipped tarball as GitHub serves it, every path under an "owner-repo-sha/" directory
+	 */
+	private static byte[] tarball(Map<String, byte[]> files) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (TarArchiveOutputStream tar = new TarArchiveOutputStream(new GZIPOutputStream(bytes))) {
+			TarArchiveEntry root = new TarArchiveEntry("acme-shop-abc123/");
+			tar.putArchiveEntry(root);
+			tar.closeArchiveEntry();
+			for (Map.Entry<String, byte[]> file : files.entrySet()) {
+				TarArchiveEntry entry = new TarArchiveEntry("acme-shop-abc123/" + file.getKey());
+				entry.setSize(file.getValue().length);
+				tar.putArchiveEntry(entry);
+				tar.write(file.getValue());
+				tar.closeArchiveEntry();
+			}
+		}
+		return bytes.toByteArray();
+	}
+
+	private static ResponseCreator page(String next, String... filenames) {
+		String body = Stream.of(filenames)
+				.map(name -> "{\"filename\": \"" + name + "\", \"status\": \"added\"}")
+				.collect(Collectors.joining(",", "[", "]"));
+		HttpHeaders headers = new HttpHeaders();
+		if (next != null) {
+			headers.set(HttpHeaders.LINK, "<" + next + ">; rel=\"next\", <" + next + ">; rel=\"last\"");
+		}
+		return withSuccess(body, MediaType.APPLICATION_JSON).headers(headers);
+	}
+
+	private static ResponseCreator signalling(CountDownLatch latch, ResponseCreator response) {
+		return request -> {
+			latch.countDown();
+			return response.createResponse(request);
+		};
+	}
+
+	private static boolean await(CountDownLatch latch) {
+		try {
+			return latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+}
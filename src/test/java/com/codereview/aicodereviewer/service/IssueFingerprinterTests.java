@@ -0,0 +1,67 @@
+package com.codereview.aicodereviewer.service;
+
+import com.codereview.aicodereviewer.model.CodeIssue;
+import com.github.javaparser.JavaParser;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IssueFingerprinterTests {
+
+	private final IssueFingerprinter fingerprinter = new IssueFingerprinter();
+
+	@Test
+	void survivesLineShiftsAndReformatting() {
+		String before = """
+				class Shop {
+				    void checkout(String id) {
+				        query("SELECT * FROM orders WHERE id = " + id);
+				    }
+				}
+				""";
+		String after = """
+				import java.util.List;
+
+				class Shop {
+				    void checkout(String id) {
+				        query("SELECT * FROM orders WHERE id = "  +  id);
+				    }
+				}
+				""";
+
+		assertEquals(fingerprint(before, 3), fingerprint(after, 5));
+	}
+
+	@Test
+	void separatesSameSnippetInDifferentMethods() {
+		String content = """
+				class Shop {
+				    void checkout() {
+				        total = 0;
+				    }
+				    void refund() {
+				        total = 0;
+				    }
+				}
+				""";
+
+		assertNotEquals(fingerprint(content, 3), fingerprint(content, 6));
+		assertEquals("Shop.refund()", IssueFingerprinter.enclosingMember(
+				new JavaParser().parse(content).getResult().orElseThrow(), 6));
+	}
+
+	private String fingerprint(String content, int line) {
+		CodeIssue issue = CodeIssue.builder()
+				.fileName("src/Shop.java")
+				.lineNumber(line)
+				.issueType("sql_injection")
+				.severity("error")
+				.build();
+		fingerprinter.fingerprint(List.of(issue), content, "src/Shop.java");
+		assertNotNull(issue.getFingerprint());
+		return issue.getFingerprint();
+	}
+
+}
@@ -0,0 +1,136 @@
+package com.codereview.aicodereviewer.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PublishQueueTests {
+
+	private PublishQueue queue = new PublishQueue(4, 100, 3, 1, 5, 1000);
+
+	@AfterEach
+	void tearDown() {
+		queue.shutdown();
+	}
+
+	@Test
+	void keepsOrderWithinPullRequestAcrossRetries() throws InterruptedException {
+		List<String> writes = new CopyOnWriteArrayList<>();
+		AtomicInteger attempts = new AtomicInteger();
+		CountDownLatch done = new CountDownLatch(1);
+
+		queue.submit("acme/shop#1", "first", () -> {
+			// Fails twice, later writes of the PR must wait for it
+			if (attempts.incrementAndGet() < 3) {
+				return false;
+			}
+			writes.add("first");
+			return true;
+		}, CancellationToken.NONE);
+		queue.submit("acme/shop#1", "second", () -> writes.add("second"), CancellationToken.NONE);
+		queue.submit("acme/shop#1", "third", () -> {
+			writes.add("third");
+			done.countDown();
+			return true;
+		}, CancellationToken.NONE);
+
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		assertEquals(List.of("first", "second", "third"), writes);
+		assertEquals(2L, queue.getStats().get("retried"));
+	}
+
+	@Test
+	void givesUpAfterMaxAttempts() throws InterruptedException {
+		CountDownLatch next = new CountDownLatch(1);
+
+		queue.submit("acme/shop#2", "broken", () -> {
+			throw new IllegalStateException("boom");
+		}, CancellationToken.NONE);
+		queue.submit("acme/shop#2", "after", () -> {
+			next.countDown();
+			return true;
+		}, CancellationToken.NONE);
+
+		assertTrue(next.await(5, TimeUnit.SECONDS));
+		assertEquals(1L, queue.getStats().get("failed"));
+	}
+
+	@Test
+	void ignoresDuplicateKeysAndSkipsCancelledWrites() throws InterruptedException {
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch done = new CountDownLatch(1);
+		AtomicInteger runs = new AtomicInteger();
+		CancellationToken cancellation = new CancellationToken();
+
+		queue.submit("acme/shop#3", "blocker", () -> release.await(5, TimeUnit.SECONDS), CancellationToken.NONE);
+		queue.submit("acme/shop#3", "summary", () -> runs.incrementAndGet() > 0, CancellationToken.NONE);
+		queue.submit("acme/shop#3", "summary", () -> runs.incrementAndGet() > 0, CancellationToken.NONE);
+		queue.submit("acme/shop#3", "stale", () -> runs.incrementAndGet() > 0, cancellation);
+		queue.submit("acme/shop#3", "last", () -> {
+			done.countDown();
+			return true;
+		}, CancellationToken.NONE);
+
+		cancellation.cancel("newer push");
+		release.countDown();
+
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		assertEquals(1, runs.get());
+		assertEquals(1L, queue.getStats().get("deduplicated"));
+		assertEquals(1L, queue.getStats().get("skipped"));
+	}
+
+	@Test
+	void dropsWritesWhenFull() {
+		queue.shutdown();
+		queue = new PublishQueue(1, 1, 1, 1, 1, 1000);
+		CountDownLatch release = new CountDownLatch(1);
+
+		assertTrue(queue.submit("acme/shop#4", "a", () -> release.await(5, TimeUnit.SECONDS), CancellationToken.NONE));
+		assertFalse(queue.submit("acme/shop#4", "b", () -> true, CancellationToken.NONE));
+		assertEquals(1L, queue.getStats().get("dropped"));
+		release.countDown();
+	}
+
+	@Test
+	void reportsDrainedOnceLastWriteOfPullRequestFinished() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		assertTrue(queue.whenDrained("acme/shop#5").isDone());
+
+		queue.submit("acme/shop#5", "annotations", () -> release.await(5, TimeUnit.SECONDS), CancellationToken.NONE);
+		queue.submit("acme/shop#5", "summary", () -> {
+			throw new IllegalStateException("boom");
+		}, CancellationToken.NONE);
+		CompletableFuture<Void> drained = queue.whenDrained("acme/shop#5");
+
+		assertFalse(drained.isDone());
+		release.countDown();
+		drained.get(5, TimeUnit.SECONDS);
+		assertEquals(1L, queue.getStats().get("failed"));
+		assertEquals(0, queue.getStats().get("pending"));
+	}
+
+	@Test
+	void shutdownWaitsForQueuedWrites() {
+		List<String> writes = new CopyOnWriteArrayList<>();
+		queue.submit("acme/shop#6", "slow", () -> {
+			Thread.sleep(100);
+			return writes.add("slow");
+		}, CancellationToken.NONE);
+		queue.submit("acme/shop#6", "summary", () -> writes.add("summary"), CancellationToken.NONE);
+
+		queue.shutdown();
+
+		assertEquals(List.of("slow", "summary"), writes);
+		assertEquals(0, queue.getStats().get("pending"));
+	}
+
+}
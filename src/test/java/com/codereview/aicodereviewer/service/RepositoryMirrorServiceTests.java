@@ -0,0 +1,122 @@
+package com.codereview.aicodereviewer.service;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the mirror backend against file:// remotes, no network involved
+ */
+class RepositoryMirrorServiceTests {
+
+	@TempDir
+	Path upstreamRoot;
+
+	@TempDir
+	Path mirrorRoot;
+
+	private RepositoryMirrorService mirrors;
+
+	@BeforeEach
+	void setUp() {
+		mirrors = newService(Long.MAX_VALUE);
+	}
+
+	@AfterEach
+	void tearDown() {
+		mirrors.shutdown();
+	}
+
+	@Test
+	void clonesThenFetchesIncrementally() throws Exception {
+		try (Git upstream = initUpstream("acme", "shop")) {
+			RevCommit first = commit(upstream, "src/Shop.java", "class Shop {\n}\n");
+
+			assertTrue(mirrors.prepare("acme", "shop", 1, first.name(), null));
+			assertEquals("class Shop {\n}\n", mirrors.readBlob("acme", "shop", blobSha(upstream, first, "src/Shop.java")));
+
+			RevCommit second = commit(upstream, "src/Shop.java", "class Shop {\n    int items;\n}\n");
+
+			assertTrue(mirrors.prepare("acme", "shop", 1, second.name(), null));
+			assertEquals("class Shop {\n    int items;\n}\n",
+					mirrors.readBlob("acme", "shop", blobSha(upstream, second, "src/Shop.java")));
+
+			Map<String, Object> stats = mirrors.getStats();
+			assertEquals(1L, stats.get("clones"));
+			assertEquals(1L, stats.get("fetches"));
+		}
+	}
+
+	@Test
+	void evictsLeastRecentlyUsedMirrorOverQuota() throws Exception {
+		try (Git shop = initUpstream("acme", "shop"); Git billing = initUpstream("acme", "billing")) {
+			RevCommit shopHead = commit(shop, "Shop.java", "class Shop {}\n");
+			RevCommit billingHead = commit(billing, "Billing.java", "class Billing {}\n");
+
+			mirrors.shutdown();
+			mirrors = newService(1);
+
+			assertTrue(mirrors.prepare("acme", "shop", 1, shopHead.name(), null));
+			assertTrue(mirrors.prepare("acme", "billing", 1, billingHead.name(), null));
+
+			assertFalse(Files.exists(mirrorRoot.resolve("acme").resolve("shop.git")));
+			assertTrue(Files.exists(mirrorRoot.resolve("acme").resolve("billing.git")));
+			assertNull(mirrors.readBlob("acme", "shop", blobSha(shop, shopHead, "Shop.java")));
+			assertTrue((Long) mirrors.getStats().get("evictions") >= 1);
+			try (Stream<Path> entries = Files.list(mirrorRoot)) {
+				assertEquals(List.of("acme"), entries.map(path -> path.getFileName().toString()).toList());
+			}
+		}
+	}
+
+	@Test
+	void deletesLeftoversOfInterruptedEviction() throws Exception {
+		Path leftover = mirrorRoot.resolve(".evicted-1234").resolve("objects");
+		Files.createDirectories(leftover);
+		Files.writeString(leftover.resolve("pack"), "partial");
+
+		mirrors.shutdown();
+		mirrors = newService(Long.MAX_VALUE);
+
+		assertFalse(Files.exists(mirrorRoot.resolve(".evicted-1234")));
+		assertEquals(0, mirrors.getStats().get("mirrors"));
+	}
+
+	private RepositoryMirrorService newService(long maxBytes) {
+		String remoteTemplate = upstreamRoot.toUri() + "%s/%s";
+		return new RepositoryMirrorService(true, mirrorRoot.toString(), maxBytes, remoteTemplate, "");
+	}
+
+	private Git initUpstream(String owner, String repo) throws Exception {
+		return Git.init().setDirectory(upstreamRoot.resolve(owner).resolve(repo).toFile()).call();
+	}
+
+	private static RevCommit commit(Git git, String path, String content) throws Exception {
+		Path file = git.getRepository().getWorkTree().toPath().resolve(path);
+		Files.createDirectories(file.getParent());
+		Files.writeString(file, content);
+		git.add().addFilepattern(path).call();
+		return git.commit().setMessage("Update " + path).setAuthor("dev", "dev@example.com").call();
+	}
+
+	private static String blobSha(Git git, RevCommit commit, String path) throws Exception {
+		try (TreeWalk walk = TreeWalk.forPath(git.getRepository(), path, commit.getTree())) {
+			ObjectId id = walk.getObjectId(0);
+			return id.name();
+		}
+	}
+
+}
@@ -0,0 +1,199 @@
+package com.codereview.aicodereviewer.service;
+
+import com.codereview.aicodereviewer.model.PullRequestEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReviewCoalescerTests {
+
+	private final RecordingScheduler scheduler = new RecordingScheduler();
+	private ReviewCoalescer coalescer = newCoalescer(0);
+
+	@AfterEach
+	void tearDown() {
+		coalescer.shutdown();
+	}
+
+	@Test
+	void newPushCancelsRunningReview() {
+		assertEquals(ReviewCoalescer.Outcome.QUEUED, coalescer.offer(event("opened", "aaa")));
+		assertEquals(ReviewCoalescer.Outcome.QUEUED, coalescer.offer(event("synchronize", "bbb")));
+
+		assertEquals(2, scheduler.submissions.size());
+		assertTrue(scheduler.submissions.get(0).cancellation().isCancelled());
+		assertFalse(scheduler.submissions.get(1).cancellation().isCancelled());
+		assertEquals(1L, coalescer.getStats().get("supersededAfterDispatch"));
+	}
+
+	@Test
+	void burstOfPushesInsideDebounceWindowRunsOnlyTheLast() throws InterruptedException {
+		coalescer.shutdown();
+		coalescer = newCoalescer(50);
+
+		assertEquals(ReviewCoalescer.Outcome.DEBOUNCED, coalescer.offer(event("synchronize", "aaa")));
+		assertEquals(ReviewCoalescer.Outcome.DEBOUNCED, coalescer.offer(event("synchronize", "bbb")));
+		assertEquals(ReviewCoalescer.Outcome.DEBOUNCED, coalescer.offer(event("synchronize", "ccc")));
+
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (scheduler.submissions.isEmpty() && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+		}
+		Thread.sleep(100);
+
+		assertEquals(1, scheduler.submissions.size());
+		assertEquals("ccc", scheduler.submissions.get(0).event().getHeadSha());
+		assertEquals(2L, coalescer.getStats().get("coalesced"));
+	}
+
+	@Test
+	void ignoresSameHeadUntilItsReviewFinishes() {
+		assertEquals(ReviewCoalescer.Outcome.QUEUED, coalescer.offer(event("opened", "aaa")));
+		assertEquals(ReviewCoalescer.Outcome.DUPLICATE, coalescer.offer(event("synchronize", "aaa")));
+		assertEquals(1, coalescer.getStats().get("trackedPullRequests"));
+
+		scheduler.submissions.get(0).onFinished().run();
+
+		assertEquals(0, coalescer.getStats().get("trackedPullRequests"));
+		assertEquals(ReviewCoalescer.Outcome.QUEUED, coalescer.offer(event("synchronize", "aaa")));
+	}
+
+	@Test
+	void finishedSupersededReviewKeepsTrackingTheNewOne() {
+		coalescer.offer(event("opened", "aaa"));
+		coalescer.offer(event("synchronize", "bbb"));
+
+		scheduler.submissions.get(0).onFinished().run();
+
+		assertEquals(1, coalescer.getStats().get("trackedPullRequests"));
+		assertEquals(ReviewCoalescer.Outcome.DUPLICATE, coalescer.offer(event("synchronize", "bbb")));
+	}
+
+	@Test
+	void retriesDebouncedDispatchUntilSchedulerHasRoom(@TempDir Path directory) throws Exception {
+		WebhookJournal journal = new WebhookJournal(new ObjectMapper(), true, directory.toString(), 4096, 10);
+		coalescer.shutdown();
+		coalescer = new ReviewCoalescer(scheduler, journal, 20);
+		PullRequestEvent event = event("synchronize", "aaa");
+		journal.append(event);
+		scheduler.accepting = false;
+		try {
+			assertEquals(ReviewCoalescer.Outcome.DEBOUNCED, coalescer.offer(event));
+			long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+			while ((long) coalescer.getStats().get("dispatchRetries") < 2 && System.nanoTime() < deadline) {
+				Thread.sleep(10);
+			}
+
+			// Acknowledged long ago, so it is neither dropped nor completed while it waits
+			assertEquals(1, coalescer.getStats().get("trackedPullRequests"));
+			assertEquals(1, journal.getStats().get("pendingEvents"));
+			assertEquals(ReviewCoalescer.Outcome.DUPLICATE, coalescer.offer(event("synchronize", "aaa")));
+
+			scheduler.accepting = true;
+			deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+			while (scheduler.submissions.isEmpty() && System.nanoTime() < deadline) {
+				Thread.sleep(10);
+			}
+			assertEquals("aaa", scheduler.submissions.get(0).event().getHeadSha());
+		} finally {
+			journal.close();
+		}
+	}
+
+	@Test
+	void replayKeepsRecoveredEventsTheQueueHasNoRoomFor(@TempDir Path directory) throws Exception {
+		WebhookJournal journal = new WebhookJournal(new ObjectMapper(), true, directory.toString(), 4096, 10);
+		for (int pr = 1; pr <= 5; pr++) {
+			journal.append(event(pr, "opened", "sha" + pr));
+		}
+		journal.close();
+
+		journal = new WebhookJournal(new ObjectMapper(), true, directory.toString(), 4096, 10);
+		coalescer.shutdown();
+		coalescer = new ReviewCoalescer(scheduler, journal, 0);
+		WebhookJournalRecovery recovery = new WebhookJournalRecovery(journal, coalescer, 20);
+		scheduler.capacity = 2;
+		try {
+			recovery.replayPendingReviews();
+
+			assertEquals(2, scheduler.submissions.size());
+			assertEquals(5, journal.getStats().get("pendingEvents"));
+
+			scheduler.capacity = 5;
+			long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+			while (scheduler.submissions.size() < 5 && System.nanoTime() < deadline) {
+				Thread.sleep(10);
+			}
+
+			assertEquals(List.of(1, 2, 3, 4, 5),
+					scheduler.submissions.stream().map(submission -> submission.event().getPrNumber()).toList());
+			// Still pending until the reviews finish
+			assertEquals(5, journal.getStats().get("pendingEvents"));
+		} finally {
+			recovery.shutdown();
+			journal.close();
+		}
+	}
+
+	private ReviewCoalescer newCoalescer(long debounceMillis) {
+		return new ReviewCoalescer(scheduler, disabledJournal(), debounceMillis);
+	}
+
+	private static WebhookJournal disabledJournal() {
+		return new WebhookJournal(new ObjectMapper(), false, "unused", 1024, 1000);
+	}
+
+	private static PullRequestEvent event(String action, String headSha) {
+		return event(7, action, headSha);
+	}
+
+	private static PullRequestEvent event(int prNumber, String action, String headSha) {
+		return PullRequestEvent.builder()
+				.action(action)
+				.owner("acme")
+				.repo("shop")
+				.prNumber(prNumber)
+				.headSha(headSha)
+				.build();
+	}
+
+	private record Submission(PullRequestEvent event, CancellationToken cancellation, Runnable onFinished) {
+	}
+
+	/**
+	 * Scheduler without workers that records what it is handed
+	 */
+	private static class RecordingScheduler extends ReviewScheduler {
+
+		private final List<Submission> submissions = new CopyOnWriteArrayList<>();
+		private volatile boolean accepting = true;
+		private volatile int capacity = Integer.MAX_VALUE;
+
+		RecordingScheduler() {
+			super(null, disabledJournal(), 0, 10, 10, 1, "", 60000, 1.0, 8000, 5);
+		}
+
+		@Override
+		public boolean submit(PullRequestEvent event, CancellationToken cancellation, Runnable onFinished) {
+			if (!accepting || !hasCapacity(event.getInstallationId())) {
+				return false;
+			}
+			submissions.add(new Submission(event, cancellation, onFinished));
+			return true;
+		}
+
+		@Override
+		public boolean hasCapacity(Long installationId) {
+			return submissions.size() < capacity;
+		}
+	}
+
+}
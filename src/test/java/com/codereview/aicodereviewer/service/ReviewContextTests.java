@@ -0,0 +1,82 @@
+package com.codereview.aicodereviewer.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReviewContextTests {
+
+	@Test
+	void followsWrappedTasksOntoOtherThreads() throws Exception {
+		ReviewContext context = context("token-1", null);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<String> plain = executor.submit(ReviewContext::currentInstallationToken);
+			Future<String> wrapped = executor.submit(context.wrap(ReviewContext::currentInstallationToken));
+
+			assertNull(plain.get());
+			assertEquals("token-1", wrapped.get());
+			// Nothing is left behind on the pooled thread
+			assertNull(executor.submit(ReviewContext::currentInstallationToken).get());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	void propagatesCallersContextAndRestoresOuterOne() {
+		ReviewContext outer = context("outer", null);
+		ReviewContext inner = context("inner", null);
+		String[] seen = new String[2];
+
+		outer.run(() -> {
+			Runnable task = ReviewContext.propagate(() -> seen[0] = ReviewContext.currentInstallationToken());
+			inner.run(task);
+			seen[1] = ReviewContext.currentInstallationToken();
+		});
+
+		assertEquals("outer", seen[0]);
+		assertEquals("outer", seen[1]);
+		assertTrue(ReviewContext.current().isEmpty());
+	}
+
+	@Test
+	void stopsOnCancellationOrDeadline() {
+		CancellationToken cancellation = new CancellationToken();
+		ReviewContext context = new ReviewContext("acme", "shop", 7, "abc123", null, null, null, cancellation);
+		context.throwIfCancelled();
+
+		cancellation.cancel("superseded");
+		assertThrows(ReviewCancelledException.class, context::throwIfCancelled);
+		context.detached().throwIfCancelled();
+
+		ReviewContext expired = context(null, Instant.now().minusSeconds(1));
+		assertTrue(expired.isExpired());
+		assertThrows(ReviewCancelledException.class, expired::throwIfCancelled);
+		assertEquals("acme/shop#7", expired.prKey());
+	}
+
+	@Test
+	void readsInstallationTokenOnEveryRequest() {
+		AtomicInteger renewals = new AtomicInteger();
+		ReviewContext context = new ReviewContext("acme", "shop", 7, "abc123", 42L,
+				() -> "token-" + renewals.incrementAndGet(), null, null);
+
+		assertEquals("token-1", context.call(ReviewContext::currentInstallationToken));
+		assertEquals("token-2", context.detached().call(ReviewContext::currentInstallationToken));
+		assertTrue(context.call(ReviewContext::currentUsesInstallation));
+		assertFalse(context(null, null).call(ReviewContext::currentUsesInstallation));
+	}
+
+	private static ReviewContext context(String token, Instant deadline) {
+		return new ReviewContext("acme", "shop", 7, "abc123", token != null ? 42L : null,
+				token != null ? () -> token : null, deadline, null);
+	}
+
+}
@@ -0,0 +1,357 @@
+package com.codereview.aicodereviewer.service;
+
+import com.codereview.aicodereviewer.model.PullRequestEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReviewSchedulerTests {
+
+	private final GatedOrchestrator orchestrator = new GatedOrchestrator();
+	private ReviewScheduler scheduler;
+
+	@AfterEach
+	void tearDown() {
+		orchestrator.openAll();
+		if (scheduler != null) {
+			scheduler.shutdown();
+		}
+	}
+
+	@Test
+	void singleInstallationIsNotHeldBackByItsCap() throws InterruptedException {
+		scheduler = newScheduler(4, 2, "");
+
+		for (int pr = 1; pr <= 4; pr++) {
+			assertTrue(scheduler.submit(event("pat", pr, null, 0), new CancellationToken(), () -> { }));
+		}
+
+		awaitStarted(4);
+		assertEquals(4, scheduler.getStats().get("activeWorkers"));
+	}
+
+	@Test
+	void capAppliesOnlyWhileAnotherInstallationWaits() throws InterruptedException {
+		scheduler = newScheduler(3, 1, "");
+		occupyWorkers(3);
+
+		submit("a", 1, 1L);
+		submit("a", 2, 1L);
+		submit("a", 3, 1L);
+		submit("b", 1, 2L);
+
+		orchestrator.finish("g1");
+		awaitStarted(4);
+		// a1 is running, so installation 1 is at its cap while b1 waits
+		orchestrator.finish("g2");
+		awaitStarted(5);
+		// Only installation 1 has reviews queued now
+		orchestrator.finish("g3");
+		awaitStarted(6);
+
+		assertEquals(List.of("g1", "g2", "g3", "a1", "b1", "a2"), orchestrator.started);
+	}
+
+	@Test
+	void sharesWorkerByInstallationWeight() throws InterruptedException {
+		scheduler = newScheduler(1, 10, "1:2");
+		occupyWorkers(1);
+
+		for (int pr = 1; pr <= 4; pr++) {
+			submit("a", pr, 1L);
+			submit("b", pr, 2L);
+		}
+
+		runOneByOne("g1", 8);
+
+		assertEquals(List.of("g1", "a1", "a2", "b1", "a3", "a4", "b2", "b3", "b4"), orchestrator.started);
+	}
+
+	@Test
+	void cheaperReviewRunsFirstWithinInstallation() throws InterruptedException {
+		scheduler = newScheduler(1, 10, "");
+		occupyWorkers(1);
+
+		submit(event("a", 1, 1L, 20));
+		submit(event("a", 2, 1L, 1));
+		submit(event("a", 3, 1L, 5));
+
+		runOneByOne("g1", 3);
+
+		assertEquals(List.of("g1", "a2", "a3", "a1"), orchestrator.started);
+	}
+
+	@Test
+	void longWaitingReviewOvertakesCheaperOne() throws InterruptedException {
+		// Each millisecond in the queue outweighs a second of estimated review time
+		scheduler = newScheduler(1, 10, "", 1000.0);
+		occupyWorkers(1);
+
+		submit(event("a", 1, 1L, 20));
+		Thread.sleep(20);
+		submit(event("a", 2, 1L, 1));
+
+		runOneByOne("g1", 2);
+
+		assertEquals(List.of("g1", "a1", "a2"), orchestrator.started);
+	}
+
+	@Test
+	void shortestJobFirstCutsMeanTimeToReviewOfMixedTrace() throws InterruptedException {
+		// Changed files per PR, in arrival order: a few large PRs ahead of many small ones
+		int[] trace = {40, 1, 2, 30, 1, 5, 1, 20, 3, 1};
+
+		// An aging rate this high orders purely by arrival, which is FIFO
+		double fifo = meanTimeToReview(trace, 1_000_000.0);
+		double shortestFirst = meanTimeToReview(trace, 1.0);
+
+		// At 2 ms per file: about 147 ms in arrival order, 48 ms cheapest first
+		assertTrue(shortestFirst < fifo / 2, "FIFO " + fifo + " ms, shortest job first " + shortestFirst + " ms");
+	}
+
+	@Test
+	void learnsReviewTimeOnlyFromSuccessfulReviews() throws InterruptedException {
+		scheduler = newScheduler(1, 10, "");
+		orchestrator.failing.add("f1");
+
+		submit(event("f", 1, null, 1));
+		awaitStarted(1);
+		Thread.sleep(50);
+		orchestrator.finish("f1");
+		awaitStat("failed", 1L);
+		assertEquals(100L, scheduler.getStats().get("estimatedMillisPerFile"));
+
+		submit(event("a", 1, null, 1));
+		awaitStarted(2);
+		Thread.sleep(300);
+		orchestrator.finish("a1");
+		awaitStat("completed", 1L);
+		assertTrue((long) scheduler.getStats().get("estimatedMillisPerFile") > 100L);
+	}
+
+	@Test
+	void finishesReviewOnlyOnceItsWritesArePublished() throws InterruptedException {
+		scheduler = newScheduler(1, 10, "");
+		CompletableFuture<Void> published = new CompletableFuture<>();
+		orchestrator.published = published;
+		CountDownLatch finished = new CountDownLatch(1);
+
+		assertTrue(scheduler.submit(event("a", 1, null, 1), new CancellationToken(), finished::countDown));
+		awaitStarted(1);
+		orchestrator.finish("a1");
+		awaitStat("completed", 1L);
+
+		assertFalse(finished.await(50, TimeUnit.MILLISECONDS));
+		published.complete(null);
+		assertTrue(finished.await(5, TimeUnit.SECONDS));
+	}
+
+	private ReviewScheduler newScheduler(int workers, int installationMaxConcurrency, String weights) {
+		return newScheduler(workers, installationMaxConcurrency, weights, 1.0);
+	}
+
+	private ReviewScheduler newScheduler(int workers, int installationMaxConcurrency, String weights,
+										 double agingRate) {
+		// Every review without size hints costs 100 ms, one quantum
+		return new ReviewScheduler(orchestrator, disabledJournal(), workers, 100, 50,
+				installationMaxConcurrency, weights, 100, agingRate, 100, 5);
+	}
+
+	/**
+	 * Queue the whole trace behind a blocked review on one worker, then release it and
+	 * average the time from release until each traced review finished
+	 */
+	private static double meanTimeToReview(int[] trace, double agingRate) throws InterruptedException {
+		TraceOrchestrator traceOrchestrator = new TraceOrchestrator(trace);
+		ReviewScheduler traceScheduler = new ReviewScheduler(traceOrchestrator, disabledJournal(), 1, 100, 50,
+				10, "", 100, agingRate, 100, 5);
+		try {
+			assertTrue(traceScheduler.submit(event("hold", 0, null, 0), new CancellationToken(), () -> { }));
+			assertTrue(traceOrchestrator.holding.await(5, TimeUnit.SECONDS));
+			for (int pr = 1; pr <= trace.length; pr++) {
+				// Arrivals a few milliseconds apart, so aging can tell them apart
+				Thread.sleep(2);
+				assertTrue(traceScheduler.submit(event("trace", pr, null, trace[pr - 1]), new CancellationToken(), () -> { }));
+			}
+
+			long released = System.nanoTime();
+			traceOrchestrator.release.countDown();
+			assertTrue(traceOrchestrator.done.await(5, TimeUnit.SECONDS));
+
+			return traceOrchestrator.finishedAt.values().stream()
+					.mapToLong(finished -> TimeUnit.NANOSECONDS.toMillis(finished - released))
+					.average()
+					.orElseThrow();
+		} finally {
+			traceOrchestrator.release.countDown();
+			traceScheduler.shutdown();
+		}
+	}
+
+	/**
+	 * Fill every worker with a blocked review of installation 99, named g1..gN
+	 */
+	private void occupyWorkers(int workers) throws InterruptedException {
+		for (int pr = 1; pr <= workers; pr++) {
+			submit("g", pr, 99L);
+		}
+		awaitStarted(workers);
+	}
+
+	/**
+	 * Finish the running review, then each review it lets start, count times
+	 */
+	private void runOneByOne(String first, int count) throws InterruptedException {
+		int startedBefore = orchestrator.started.size();
+		orchestrator.finish(first);
+		for (int i = 1; i <= count; i++) {
+			awaitStarted(startedBefore + i);
+			orchestrator.finish(orchestrator.started.get(startedBefore + i - 1));
+		}
+	}
+
+	private void submit(String owner, int prNumber, Long installationId) {
+		submit(event(owner, prNumber, installationId, 0));
+	}
+
+	private void submit(PullRequestEvent event) {
+		assertTrue(scheduler.submit(event, new CancellationToken(), () -> { }));
+	}
+
+	private void awaitStarted(int count) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (orchestrator.started.size() < count && System.nanoTime() < deadline) {
+			Thread.sleep(5);
+		}
+		assertEquals(count, orchestrator.started.size(), "started: " + orchestrator.started);
+	}
+
+	private void awaitStat(String name, long value) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (!scheduler.getStats().get(name).equals(value) && System.nanoTime() < deadline) {
+			Thread.sleep(5);
+		}
+		assertEquals(value, scheduler.getStats().get(name));
+	}
+
+	private static PullRequestEvent event(String owner, int prNumber, Long installationId, int changedFiles) {
+		return PullRequestEvent.builder()
+				.action("opened")
+				.owner(owner)
+				.repo("shop")
+				.prNumber(prNumber)
+				.headSha("sha" + prNumber)
+				.installationId(installationId)
+				.changedFiles(changedFiles)
+				.build();
+	}
+
+	private static WebhookJournal disabledJournal() {
+		return new WebhookJournal(new ObjectMapper(), false, "unused", 1024, 1000);
+	}
+
+	/**
+	 * Orchestrator that spends 2 ms per changed file on each traced PR
+	 * PR 0 holds the worker until released, so the whole trace is queued before any of it runs
+	 */
+	private static class TraceOrchestrator extends ReviewOrchestrator {
+
+		private final int[] trace;
+		private final CountDownLatch holding = new CountDownLatch(1);
+		private final CountDownLatch release = new CountDownLatch(1);
+		private final CountDownLatch done;
+		private final Map<Integer, Long> finishedAt = new ConcurrentHashMap<>();
+
+		TraceOrchestrator(int[] trace) {
+			super(null, null, null, null, null, null, null, null);
+			this.trace = trace;
+			this.done = new CountDownLatch(trace.length);
+		}
+
+		@Override
+		public boolean processPullRequest(String owner, String repo, int prNumber, String headSha,
+										  Long installationId, CancellationToken cancellation) {
+			try {
+				if (prNumber == 0) {
+					holding.countDown();
+					release.await();
+				} else {
+					Thread.sleep(2L * trace[prNumber - 1]);
+					finishedAt.put(prNumber, System.nanoTime());
+					done.countDown();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return true;
+		}
+
+		@Override
+		public CompletableFuture<Void> whenPublished(String owner, String repo, int prNumber) {
+			return CompletableFuture.completedFuture(null);
+		}
+	}
+
+	/**
+	 * Orchestrator whose reviews, named owner + PR number, block until finished
+	 * Reviews named in failing report failure; publishing finishes with the published future
+	 */
+	private static class GatedOrchestrator extends ReviewOrchestrator {
+
+		private final List<String> started = new CopyOnWriteArrayList<>();
+		private final Map<String, CountDownLatch> gates = new ConcurrentHashMap<>();
+		private final Set<String> failing = ConcurrentHashMap.newKeySet();
+		private volatile CompletableFuture<Void> published = CompletableFuture.completedFuture(null);
+		private volatile boolean open;
+
+		GatedOrchestrator() {
+			super(null, null, null, null, null, null, null, null);
+		}
+
+		@Override
+		public boolean processPullRequest(String owner, String repo, int prNumber, String headSha,
+										  Long installationId, CancellationToken cancellation) {
+			String name = owner + prNumber;
+			CountDownLatch gate = gate(name);
+			started.add(name);
+			try {
+				if (!open) {
+					gate.await();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return !failing.contains(name);
+		}
+
+		@Override
+		public CompletableFuture<Void> whenPublished(String owner, String repo, int prNumber) {
+			return published;
+		}
+
+		void finish(String name) {
+			gate(name).countDown();
+		}
+
+		void openAll() {
+			open = true;
+			gates.values().forEach(CountDownLatch::countDown);
+		}
+
+		private CountDownLatch gate(String name) {
+			return gates.computeIfAbsent(name, key -> new CountDownLatch(1));
+		}
+	}
+
+}
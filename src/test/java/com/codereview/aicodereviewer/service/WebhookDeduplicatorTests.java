@@ -0,0 +1,74 @@
+package com.codereview.aicodereviewer.service;
+
+import com.codereview.aicodereviewer.model.PullRequestEvent;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WebhookDeduplicatorTests {
+
+	private final WebhookDeduplicator deduplicator = new WebhookDeduplicator(100);
+
+	@Test
+	void recognisesRedeliveries() {
+		assertFalse(deduplicator.isDuplicateDelivery("delivery-1"));
+		assertTrue(deduplicator.isDuplicateDelivery("delivery-1"));
+		assertFalse(deduplicator.isDuplicateDelivery("delivery-2"));
+
+		// Deliveries without an ID can't be recognised
+		assertFalse(deduplicator.isDuplicateDelivery(null));
+		assertFalse(deduplicator.isDuplicateDelivery(null));
+	}
+
+	@Test
+	void recognisesRepeatedHeadSha() {
+		assertFalse(deduplicator.isDuplicateHeadSha(event(7, "aaa")));
+		assertTrue(deduplicator.isDuplicateHeadSha(event(7, "aaa")));
+		assertFalse(deduplicator.isDuplicateHeadSha(event(7, "bbb")));
+		assertFalse(deduplicator.isDuplicateHeadSha(event(8, "aaa")));
+	}
+
+	@Test
+	void forgottenEventIsProcessedAgain() {
+		PullRequestEvent event = event(7, "aaa");
+		deduplicator.isDuplicateDelivery("delivery-1");
+		deduplicator.isDuplicateHeadSha(event);
+
+		deduplicator.forget("delivery-1", event);
+
+		assertFalse(deduplicator.isDuplicateDelivery("delivery-1"));
+		assertFalse(deduplicator.isDuplicateHeadSha(event));
+	}
+
+	@Test
+	void forgetsDeliveryOfUnparsedPayload() {
+		deduplicator.isDuplicateDelivery("delivery-1");
+
+		deduplicator.forget("delivery-1", null);
+
+		assertFalse(deduplicator.isDuplicateDelivery("delivery-1"));
+	}
+
+	@Test
+	void keepsAtMostCapacityKeys() {
+		WebhookDeduplicator.RecentKeySet keys = new WebhookDeduplicator.RecentKeySet(10);
+		for (int i = 0; i < 1000; i++) {
+			assertTrue(keys.add("key-" + i));
+			assertTrue(keys.size() <= 10);
+		}
+
+		// The newest keys are still known, the oldest were evicted
+		assertFalse(keys.add("key-999"));
+		assertTrue(keys.add("key-0"));
+	}
+
+	private static PullRequestEvent event(int prNumber, String headSha) {
+		return PullRequestEvent.builder()
+				.owner("acme")
+				.repo("shop")
+				.prNumber(prNumber)
+				.headSha(headSha)
+				.build();
+	}
+
+}
@@ -0,0 +1,46 @@
+package com.codereview.aicodereviewer.service;
+
+import com.codereview.aicodereviewer.model.PullRequestEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WebhookEventParserTests {
+
+	private final WebhookEventParser parser = new WebhookEventParser(new ObjectMapper());
+
+	@Test
+	void extractsPullRequestFields() throws IOException {
+		PullRequestEvent event = parser.parsePullRequestEvent(fixture("pull_request_synchronize.json"));
+
+		assertEquals("synchronize", event.getAction());
+		assertEquals("nagbisafae", event.getOwner());
+		assertEquals("ai-code-review-test", event.getRepo());
+		assertEquals(42, event.getPrNumber());
+		assertEquals("6dcb09b5b57875f334f61aebed695e2e4193db5e", event.getHeadSha());
+		assertEquals(55512345L, event.getInstallationId());
+		assertEquals(9, event.getChangedFiles());
+		assertEquals(412, event.getAdditions());
+		assertEquals(138, event.getDeletions());
+	}
+
+	@Test
+	void rejectsPayloadWithoutPullRequest() {
+		byte[] body = "{\"action\":\"opened\",\"repository\":{\"full_name\":\"a/b\"}}".getBytes(StandardCharsets.UTF_8);
+
+		assertThrows(IOException.class, () -> parser.parsePullRequestEvent(body));
+	}
+
+	private static byte[] fixture(String name) throws IOException {
+		try (InputStream in = WebhookEventParserTests.class.getResourceAsStream("/webhooks/" + name)) {
+			assertNotNull(in, "missing fixture " + name);
+			return in.readAllBytes();
+		}
+	}
+
+}
@@ -0,0 +1,133 @@
+package com.codereview.aicodereviewer.service;
+
+import com.codereview.aicodereviewer.model.PullRequestEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WebhookJournalTests {
+
+	private static final int HEADER_SIZE = 17;
+
+	@TempDir
+	Path directory;
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private WebhookJournal journal;
+
+	@AfterEach
+	void tearDown() {
+		if (journal != null) {
+			journal.close();
+		}
+	}
+
+	@Test
+	void replaysEventsWithoutCompletionRecord() throws IOException {
+		journal = open(4096);
+		PullRequestEvent first = event(1, "aaa");
+		PullRequestEvent second = event(2, "bbb");
+		journal.append(first);
+		journal.append(second);
+		journal.append(event(3, "ccc"));
+		journal.markCompleted(second);
+
+		List<PullRequestEvent> replayed = restart(4096).drainRecovered();
+
+		assertEquals(List.of("aaa", "ccc"), replayed.stream().map(PullRequestEvent::getHeadSha).toList());
+		assertTrue(replayed.get(0).getJournalSeq() < replayed.get(1).getJournalSeq());
+		assertTrue(journal.drainRecovered().isEmpty());
+	}
+
+	@Test
+	void stopsAtRecordWithBadChecksum() throws IOException {
+		journal = open(4096);
+		PullRequestEvent first = event(1, "aaa");
+		journal.append(first);
+		journal.append(event(2, "bbb"));
+		journal.close();
+
+		// Flip one payload byte of the second record
+		long secondPayload = recordSize(first) + HEADER_SIZE;
+		try (RandomAccessFile file = new RandomAccessFile(segment(1).toFile(), "rw")) {
+			file.seek(secondPayload + 3);
+			int original = file.read();
+			file.seek(secondPayload + 3);
+			file.write(original ^ 0xFF);
+		}
+
+		journal = open(4096);
+		assertEquals(List.of("aaa"), journal.drainRecovered().stream().map(PullRequestEvent::getHeadSha).toList());
+	}
+
+	@Test
+	void dropsTornTailAndKeepsJournaling() throws IOException {
+		journal = open(4096);
+		PullRequestEvent first = event(1, "aaa");
+		PullRequestEvent second = event(2, "bbb");
+		journal.append(first);
+		journal.append(second);
+		journal.close();
+
+		// Crash halfway through writing the second record's payload
+		long secondPayload = recordSize(first) + HEADER_SIZE;
+		int payloadLength = recordSize(second) - HEADER_SIZE;
+		try (RandomAccessFile file = new RandomAccessFile(segment(1).toFile(), "rw")) {
+			file.seek(secondPayload + payloadLength / 2);
+			file.write(new byte[payloadLength - payloadLength / 2]);
+		}
+
+		journal = open(4096);
+		assertEquals(List.of("aaa"), journal.drainRecovered().stream().map(PullRequestEvent::getHeadSha).toList());
+
+		// New events go to a fresh segment and are replayed after the next restart too
+		journal.append(event(3, "ccc"));
+		List<PullRequestEvent> replayed = restart(4096).drainRecovered();
+		assertEquals(List.of("aaa", "ccc"), replayed.stream().map(PullRequestEvent::getHeadSha).toList());
+	}
+
+	@Test
+	void failsAppendThatCannotBeWritten() {
+		journal = open(64);
+
+		assertThrows(IOException.class, () -> journal.append(event(1, "a".repeat(200))));
+		assertEquals(0, journal.getStats().get("pendingEvents"));
+	}
+
+	private WebhookJournal open(int segmentSize) {
+		return new WebhookJournal(objectMapper, true, directory.toString(), segmentSize, 10);
+	}
+
+	private WebhookJournal restart(int segmentSize) {
+		journal.close();
+		journal = open(segmentSize);
+		return journal;
+	}
+
+	private Path segment(long id) {
+		return directory.resolve(String.format("segment-%010d.log", id));
+	}
+
+	private int recordSize(PullRequestEvent event) throws IOException {
+		return HEADER_SIZE + objectMapper.writeValueAsBytes(event).length;
+	}
+
+	private static PullRequestEvent event(int prNumber, String headSha) {
+		return PullRequestEvent.builder()
+				.action("opened")
+				.owner("acme")
+				.repo("shop")
+				.prNumber(prNumber)
+				.headSha(headSha)
+				.build();
+	}
+
+}
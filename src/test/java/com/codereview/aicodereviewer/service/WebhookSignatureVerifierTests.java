@@ -0,0 +1,74 @@
+package com.codereview.aicodereviewer.service;
+
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WebhookSignatureVerifierTests {
+
+	private static final String SECRET = "It's a Secret to Everybody";
+	private static final byte[] BODY = "Hello, World!".getBytes(StandardCharsets.UTF_8);
+
+	private final WebhookSignatureVerifier verifier = new WebhookSignatureVerifier(SECRET, true);
+
+	@Test
+	void acceptsValidSignature() {
+		// Example from GitHub's webhook documentation
+		assertTrue(verifier.isValid(BODY,
+				"sha256=757107ea0eb2509fc211221cce984b8a37570b6d7586c22c46f4379c8b043e17"));
+		assertTrue(verifier.isValid(BODY, sign(SECRET, BODY)));
+		assertEquals(2L, verifier.getStats().get("verified"));
+	}
+
+	@Test
+	void rejectsWrongSignature() {
+		assertFalse(verifier.isValid(BODY, sign("another secret", BODY)));
+		assertFalse(verifier.isValid("Hello, World?".getBytes(StandardCharsets.UTF_8), sign(SECRET, BODY)));
+	}
+
+	@Test
+	void rejectsMissingHeader() {
+		assertFalse(verifier.isValid(BODY, null));
+		assertFalse(verifier.isValid(BODY, ""));
+	}
+
+	@Test
+	void rejectsMalformedHeader() {
+		String valid = sign(SECRET, BODY);
+		assertFalse(verifier.isValid(BODY, valid.replace("sha256=", "sha1=")));
+		assertFalse(verifier.isValid(BODY, valid.substring(0, valid.length() - 2)));
+		assertFalse(verifier.isValid(BODY, "sha256=" + "zz".repeat(32)));
+		assertEquals(3L, verifier.getStats().get("rejected"));
+	}
+
+	@Test
+	void rejectsEverythingWithoutSecret() {
+		WebhookSignatureVerifier unconfigured = new WebhookSignatureVerifier("", true);
+
+		assertFalse(unconfigured.isValid(BODY, null));
+		assertFalse(unconfigured.isValid(BODY, sign("", BODY)));
+	}
+
+	@Test
+	void acceptsUnsignedOnlyWhenVerificationIsOff() {
+		WebhookSignatureVerifier disabled = new WebhookSignatureVerifier("", false);
+
+		assertTrue(disabled.isValid(BODY, null));
+	}
+
+	private static String sign(String secret, byte[] body) {
+		try {
+			Mac mac = Mac.getInstance("HmacSHA256");
+			mac.init(new SecretKeySpec(secret.isEmpty() ? new byte[1] : secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+			return "sha256=" + HexFormat.of().formatHex(mac.doFinal(body));
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+}